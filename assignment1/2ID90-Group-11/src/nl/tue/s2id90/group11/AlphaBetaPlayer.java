@@ -1,9 +1,20 @@
 package nl.tue.s2id90.group11;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import nl.tue.s2id90.draughts.BitboardState;
 import nl.tue.s2id90.draughts.DraughtsState;
 import nl.tue.s2id90.draughts.player.DraughtsPlayer;
-import nl.tue.s2id90.game.GameState;
+import nl.tue.s2id90.game.SearchStatistics;
+import nl.tue.s2id90.game.TimeControl;
 import org10x10.dam.game.Move;
 
 /**
@@ -12,186 +23,758 @@ import org10x10.dam.game.Move;
  * @author Dennis
  */
 public class AlphaBetaPlayer extends DraughtsPlayer {
-    private boolean shouldStop = false;
+    private static final Logger LOG = Logger.getLogger(AlphaBetaPlayer.class.getName());
+
+    // -Dgroup11.checkEvaluation=true compares the incrementally updated
+    // evaluation with a full scan of the board in every leaf (slow, for debugging)
+    private static final boolean CHECK_EVALUATION = Boolean.getBoolean("group11.checkEvaluation");
+
+    // volatile, because stop() is called from another thread and the flag
+    // is also read by the helper threads
+    private volatile boolean shouldStop = false;
+    // deadlines of the current move, see setTimeControl(); null if there are
+    // none. Volatile: read by the helper and ponder threads, and set by
+    // setTimeControl() on the thread of the caller.
+    private volatile TimeControl timeControl = null;
+    private volatile TimeControl nextTimeControl = null;
     private int lastScore = 0;
+    private volatile SearchStatistics statistics = null;   // of the last getMove()
+    private volatile Consumer<SearchStatistics> statisticsListener = null;
+    private final TranspositionTable transpositionTable;
+    private final int threads;
+    // threads of the helper searches; started by the first search and ended
+    // by gameFinished(), so that a player that is thrown away leaves no threads
+    private ExecutorService helperPool = null;
+    private final Searcher[] searchers;    // searchers[0] is used by the main search
+    private int quiescenceNodeLimit = 1000;
+    private SearchAlgorithm searchAlgorithm = SearchAlgorithm.PVS;
+    private int aspirationWindow = 50;
+    // off by default: not shown to gain strength in self-play yet
+    private boolean lateMoveReductions = false;
+    private boolean multiCut = false;
+    private boolean killerMoves = true;
+    private boolean historyHeuristic = true;
+    private EndgameTablebase tablebase = null;
+    private OpeningBook openingBook = null;
+    private EvaluationWeights weights = EvaluationWeights.defaults();
+    // pieceSquare[piece][f-1] is the value of piece on field f for evaluate();
+    // BitboardState keeps the sum over all pieces up to date in doMove/undoMove.
+    private int[][] pieceSquare = weights.pieceSquareTable();
+    private boolean verbose = true;     // print a line per move on System.out
+    // pondering: after a move, the position after the expected reply of the
+    // opponent is searched until the next getMove(), see startPondering()
+    private boolean pondering = false;
+    private ExecutorService ponderPool = null;     // ended by gameFinished()
+    private volatile Future<?> ponder = null;  // running ponder search, or null
+    private boolean ponderCancelled = false;   // whether movePlayed() has stopped it
+    private long ponderKey;                    // hash key of the state of the ponder search
+    private boolean ponderWhite;               // side to move in that state
+    private long ponderHits = 0, ponderMisses = 0;
+    // a ponder search that nobody stops ends after this time
+    private static final long PONDER_TIME_LIMIT = TimeUnit.SECONDS.toNanos(60);
+
+    /** The search algorithms of this player. **/
+    public enum SearchAlgorithm {
+        /** alpha-beta search with full windows. **/
+        ALPHA_BETA,
+        /** principal variation search: null windows for all but the first move. **/
+        PVS
+    }
+
+    public AlphaBetaPlayer() {
+        this(1);
+    }
+
+    /**
+     * @param threads number of search threads (main search plus helpers)
+     */
+    public AlphaBetaPlayer(int threads) {
+        // 2^20 entries of 16 bytes = 16 MB
+        this(threads, 20, TranspositionTable.ReplacementPolicy.DEPTH_AND_AGE);
+    }
+
+    /**
+     * @param threads number of search threads (main search plus helpers)
+     * @param log2TableSize the transposition table gets 2^log2TableSize entries
+     * @param policy replacement policy of the transposition table
+     */
+    public AlphaBetaPlayer(int threads, int log2TableSize, TranspositionTable.ReplacementPolicy policy) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads: " + threads);
+        }
+        this.threads = threads;
+        transpositionTable = new TranspositionTable(log2TableSize, policy);
+        searchers = new Searcher[threads];
+        for (int i = 0; i < threads; i++) {
+            searchers[i] = new Searcher(this, transpositionTable);
+        }
+    }
 
-    // Bonus for piece position; index 0 = home, index 9 = other side.
-    private final static int[] ROW_BONUS = {
-        // Staying home is preferable to moving one forward, in order to defend
-        // against incoming pieces from the opponent.
-        10,
-        // Otherwise, use Fibonacci to prefer moving forward over moving one by one.
-        1,
-        2,
-        3,
-        5,
-        8,
-        13,
-        21,
-        34,
-        // Note: The game engine should automatically convert this piece to a king,
-        // so a piece at position 9 is not possible. Nevertheless, define a value
-        // in case the engine has a bug.
-        3000
-    };
-    
     @Override
     /** @return a move**/
-    public Move getMove(DraughtsState state) {
-        Move bestMove = state.getMoves().get(0);
+    public Move getMove(DraughtsState draughtsState) {
+        // Search on a bitboard copy of the state, its move generator is much
+        // faster and its moves are equal to the moves of draughtsState.
+        BitboardState state = new BitboardState(draughtsState);
+        boolean ponderHit = false;
+        synchronized (this) {
+            if (ponder != null) {
+                boolean missed = ponderCancelled;   // already counted by movePlayed()
+                ponderHit = stopPondering() == state.hashKey();
+                if (ponderHit) {
+                    ponderHits++;
+                } else if (!missed) {
+                    ponderMisses++;
+                }
+            }
+            shouldStop = false; // a late stop() of the previous move must not stop this search
+        }
+        long start = System.nanoTime();
+        timeControl = nextTimeControl;
+        nextTimeControl = null;
+        if (openingBook != null) {
+            long bookMove = openingBook.lookup(state, new long[BitboardState.MAX_MOVES]);
+            if (bookMove != 0) {
+                timeControl = null;
+                statistics = new SearchStatistics.Builder().timeNanos(System.nanoTime() - start).build();
+                Move move = state.toMove(bookMove);
+                if (verbose) {
+                    System.out.println("Reached depth: 0 (book move " + move + ")");
+                }
+                return move;
+            }
+        }
+        initEvaluation(state);
+        Searcher searcher = searchers[0];
+        searcher.setState(state.clone());
+        long bestMove = searcher.getBestMove();
         int reachedDepth = 0;
+        if (!ponderHit) {
+            // after a ponder hit the entries of the ponder search are kept
+            // safe from replacement as if they were made by this search
+            transpositionTable.newSearch();
+        }
+        List<Future<?>> helpers = startHelpers(state);
+        long previousIterationTime = 0;
         try {
             int maxDepth = 1;
-            List<Move> moves = state.getMoves();
             // Find best move using iterative deepening
             while (maxDepth < 200) {
-                bestMove = getBestMove(state, maxDepth, moves);
+                long iterationStart = System.nanoTime();
+                lastScore = searchIteration(searcher, maxDepth, lastScore); // Store best score for use in getValue()
+                bestMove = searcher.getBestMove();
                 reachedDepth = maxDepth;
                 maxDepth++;
+                Consumer<SearchStatistics> listener = statisticsListener;
+                if (listener != null) {
+                    listener.accept(statistics(reachedDepth, start));
+                }
+                long now = System.nanoTime();
+                long iterationTime = now - iterationStart;
+                if (timeControl != null && !canStartIteration(now, iterationTime, previousIterationTime)) {
+                    break;
+                }
+                previousIterationTime = iterationTime;
             }
         } catch (AIStoppedException ex) {
         }
-        System.out.println("Reached depth: " + reachedDepth);
-        return bestMove;
+        stopHelpers(helpers);
+        timeControl = null;
+        statistics = statistics(reachedDepth, start);
+        if (verbose) {
+            System.out.println("Reached depth: " + reachedDepth + " (" + getNodeCount()
+                    + " nodes, " + getQuiescenceNodeCount() + " quiescence nodes, "
+                    + Math.round(100 * getFirstMoveCutoffRate()) + "% first move cutoffs"
+                    + (tablebase != null ? ", " + getTablebaseHitCount() + " tablebase hits" : "")
+                    + (ponderHit ? ", ponder hit)" : ")"));
+        }
+        Move move = state.toMove(bestMove);
+        if (pondering) {
+            startPondering(state, bestMove);
+        }
+        return move;
+    }
+
+    // Starts a search, on the ponder thread, of the state after our move and
+    // the reply of the opponent that the transposition table expects. If the
+    // opponent plays that reply, the next getMove() finds the results of the
+    // ponder search in the transposition table.
+    private synchronized void startPondering(BitboardState state, long move) {
+        state.doMove(move);
+        long reply = expectedReply(state);
+        if (reply == 0) {
+            return;
+        }
+        state.doMove(reply);
+        if (!state.hasMoves()) {
+            return; // the game is over after the reply
+        }
+        final Searcher searcher = searchers[0];
+        searcher.setState(state);
+        ponderKey = state.hashKey();
+        ponderWhite = state.isWhiteToMove();
+        ponderCancelled = false;
+        shouldStop = false;
+        long now = System.nanoTime();
+        timeControl = new TimeControl(now, now + PONDER_TIME_LIMIT, now + PONDER_TIME_LIMIT);
+        if (ponderPool == null) {
+            ponderPool = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, getName() + "-ponder");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        ponder = ponderPool.submit(() -> {
+            int score = lastScore;
+            try {
+                for (int maxDepth = 1; maxDepth < 200; maxDepth++) {
+                    score = searchIteration(searcher, maxDepth, score);
+                }
+            } catch (AIStoppedException ex) {
+            }
+        });
+    }
+
+    // the move of the transposition table entry of state, or 0
+    private long expectedReply(BitboardState state) {
+        long entry = transpositionTable.probe(state.hashKey());
+        if (entry == TranspositionTable.MISS) {
+            return 0;
+        }
+        int code = TranspositionTable.move(entry);
+        long[] replies = new long[BitboardState.MAX_MOVES];
+        int n = state.generateMoves(replies);
+        for (int i = 0; i < n; i++) {
+            if (TranspositionTable.matches(replies[i], code)) {
+                return replies[i];
+            }
+        }
+        return 0;
     }
 
+    // stops the ponder search, if any, and waits until it has ended; returns
+    // the hash key of the state it searched
+    private synchronized long stopPondering() {
+        if (ponder == null) {
+            return 0;
+        }
+        shouldStop = true;
+        try {
+            ponder.get();
+        } catch (InterruptedException | ExecutionException ex) {
+            LOG.log(Level.WARNING, "ponder search failed", ex);
+        }
+        ponder = null;
+        timeControl = null;
+        return ponderKey;
+    }
+
+    /**
+     * stops pondering as soon as the opponent plays another move than the
+     * expected reply. Does not wait for the ponder search to end, so it can
+     * be called on the event dispatch thread; the next getMove() waits.
+     * @param m the move that was played
+     * @param s copy of the state after m
+     */
     @Override
-    public Integer getValue() {
+    public void movePlayed(Move m, DraughtsState s) {
+        if (ponder != null && s.isWhiteToMove() == ponderWhite
+                && new BitboardState(s).hashKey() != ponderKey) {
+            cancelPondering();
+        }
+    }
+
+    // asks the ponder search, if any, to stop without waiting for it
+    private synchronized void cancelPondering() {
+        if (ponder != null && !ponderCancelled) {
+            ponderCancelled = true;
+            shouldStop = true;
+            ponderMisses++;
+        }
+    }
+
+    /**
+     * stops pondering and ends the helper and ponder threads; the next search
+     * starts them again.
+     */
+    @Override
+    public void gameFinished() {
+        stopPondering();
+        if (helperPool != null) {
+            helperPool.shutdown();
+            helperPool = null;
+        }
+        synchronized (this) {
+            if (ponderPool != null) {
+                ponderPool.shutdown();
+                ponderPool = null;
+            }
+        }
+    }
+
+    /**
+     * switches pondering on or off: after each move the player goes on
+     * searching, on its own thread, the position after the reply of the
+     * opponent it expects, until it is asked for its next move. Off by default.
+     * @param enabled whether or not to ponder
+     */
+    public void setPondering(boolean enabled) {
+        pondering = enabled;
+        if (!enabled) {
+            stopPondering();
+        }
+    }
+
+    /**
+     * @return {number of times the opponent played the expected reply,
+     * number of times it did not}
+     */
+    public long[] getPonderStatistics() {
+        return new long[]{ponderHits, ponderMisses};
+    }
+
+    /**
+     * searches state with iterative deepening up to the given depth, without
+     * time limit and starting with an empty transposition table. Meant for
+     * benchmarks; only the main search thread is used.
+     * @param state state to search
+     * @param depth search depth
+     * @return score of the best move
+     */
+    public int searchToDepth(BitboardState state, int depth) {
+        stopPondering();
+        shouldStop = false;
+        transpositionTable.clear();
+        Searcher searcher = searchers[0];
+        state = state.clone();
+        initEvaluation(state);
+        searcher.setState(state);
+        try {
+            for (int maxDepth = 1; maxDepth <= depth; maxDepth++) {
+                lastScore = searchIteration(searcher, maxDepth, lastScore);
+            }
+        } catch (AIStoppedException ex) {
+        }
         return lastScore;
     }
-    
-    // Return best move for this state. This function executes the first
-    //      step of the alphabeta search. By splitting the first step from
-    //      the other we can more easily optimize this step and we don't have
-    //      to return the best move on all depths
-    Move getBestMove(GameState state, int maxDepth, List<Move> moves) throws AIStoppedException {
-        Move bestMove = null;
-        int bestScore = 0;
-        if (state.isWhiteToMove()) {
-            // Find best move for white player (highest alpha-beta score)
-            int maxScore = Integer.MIN_VALUE;
-            for (Move move : moves) {
-                state.doMove(move);
-                int score = alphaBeta(new GameNode(state), maxDepth - 1,
-                        maxScore, Integer.MAX_VALUE);
-                if (score > maxScore) {
-                    maxScore = score;
-                    bestMove = move;
-                    bestScore = maxScore;
-                }
-                state.undoMove(move);
+
+    /** @return best move (packed) of the last searchToDepth() **/
+    long getSearchedMove() {
+        return searchers[0].getBestMove();
+    }
+
+    // Whether or not there is time for the next iteration: not after the soft
+    // deadline, and not if it is expected to end after the hard deadline. The
+    // next iteration is expected to take the last iteration time times the
+    // growth of the iteration time (between 1.5 and 8).
+    private boolean canStartIteration(long now, long iterationTime, long previousIterationTime) {
+        if (timeControl.softDeadlinePassed(now)) {
+            return false;
+        }
+        double growth = previousIterationTime > 0 ? (double) iterationTime / previousIterationTime : 4;
+        growth = Math.max(1.5, Math.min(8, growth));
+        return !timeControl.hardDeadlinePassed(now + (long) (growth * iterationTime));
+    }
+
+    // One iteration of iterative deepening. With an aspiration window the root
+    // is searched with a small window around the score of the previous
+    // iteration; if the score falls outside, the window is widened on that
+    // side and the root is searched again.
+    private int searchIteration(Searcher searcher, int depth, int previousScore) throws AIStoppedException {
+        if (aspirationWindow == 0 || depth == 1) {
+            return searcher.searchRoot(depth);
+        }
+        long delta = aspirationWindow;
+        long alpha = (long) previousScore - delta, beta = (long) previousScore + delta;
+        while (true) {
+            int a = (int) Math.max(alpha, Integer.MIN_VALUE);
+            int b = (int) Math.min(beta, Integer.MAX_VALUE);
+            int score = searcher.searchRoot(depth, a, b);
+            if (score <= a && a > Integer.MIN_VALUE) {
+                delta *= 4;
+                alpha = (long) score - delta;
+            } else if (score >= b && b < Integer.MAX_VALUE) {
+                delta *= 4;
+                beta = (long) score + delta;
+            } else {
+                return score;
             }
-        } else {
-            // Find best move for black player (lowest alpha-beta score)
-            int minScore = Integer.MAX_VALUE;
-            for (Move move : moves) {
-                state.doMove(move);
-                int score = alphaBeta(new GameNode(state), maxDepth - 1,
-                        Integer.MIN_VALUE, minScore);
-                if (score < minScore) {
-                    minScore = score;
-                    bestMove = move;
-                    bestScore = minScore;
+        }
+    }
+
+    // statistics of the current search, summed over all search threads
+    private SearchStatistics statistics(int depth, long start) {
+        long cutoffs = 0, first = 0, probes = 0, hits = 0;
+        for (Searcher searcher : searchers) {
+            cutoffs += searcher.getCutoffCount();
+            first += searcher.getFirstMoveCutoffCount();
+            probes += searcher.getTTProbeCount();
+            hits += searcher.getTTHitCount();
+        }
+        return new SearchStatistics.Builder()
+                .depth(depth)
+                .nodes(getNodeCount(), getQuiescenceNodeCount())
+                .timeNanos(System.nanoTime() - start)
+                .cutoffs(cutoffs, first)
+                .ttProbes(probes, hits)
+                .score(lastScore)
+                .build();
+    }
+
+    @Override
+    public SearchStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public void setStatisticsListener(Consumer<SearchStatistics> listener) {
+        statisticsListener = listener;
+    }
+
+    /** @return number of nodes of the last search, summed over all search threads **/
+    public long getNodeCount() {
+        long nodes = 0;
+        for (Searcher searcher : searchers) {
+            nodes += searcher.getNodeCount();
+        }
+        return nodes;
+    }
+
+    /** @return number of quiescence nodes of the last search, summed over all search threads **/
+    public long getQuiescenceNodeCount() {
+        long qnodes = 0;
+        for (Searcher searcher : searchers) {
+            qnodes += searcher.getQuiescenceNodeCount();
+        }
+        return qnodes;
+    }
+
+    /** @return number of nodes of the last search that were scored by the endgame tablebase **/
+    public long getTablebaseHitCount() {
+        long hits = 0;
+        for (Searcher searcher : searchers) {
+            hits += searcher.getTablebaseHitCount();
+        }
+        return hits;
+    }
+
+    /**
+     * returns the fraction of the beta cutoffs of the last search that was
+     * caused by the first move searched; a measure of the move ordering.
+     * @return first move cutoff rate, 0 if there were no cutoffs
+     */
+    public double getFirstMoveCutoffRate() {
+        long cutoffs = 0, first = 0;
+        for (Searcher searcher : searchers) {
+            cutoffs += searcher.getCutoffCount();
+            first += searcher.getFirstMoveCutoffCount();
+        }
+        return cutoffs == 0 ? 0 : (double) first / cutoffs;
+    }
+
+    /**
+     * selects the search algorithm; PVS by default.
+     * @param algorithm search algorithm
+     */
+    public void setSearchAlgorithm(SearchAlgorithm algorithm) {
+        searchAlgorithm = algorithm;
+    }
+
+    SearchAlgorithm getSearchAlgorithm() {
+        return searchAlgorithm;
+    }
+
+    /**
+     * sets the half width of the aspiration window around the score of the
+     * previous iteration of iterative deepening.
+     * @param width half width of the window; 0 searches with full windows
+     */
+    public void setAspirationWindow(int width) {
+        if (width < 0) {
+            throw new IllegalArgumentException("width: " + width);
+        }
+        aspirationWindow = width;
+    }
+
+    /**
+     * switches late move reductions on or off: in positions without
+     * captures, moves that are ordered late are searched less deep, and
+     * searched again at full depth if they turn out to be good. Off by default.
+     * @param enabled whether or not to use late move reductions
+     */
+    public void setLateMoveReductions(boolean enabled) {
+        lateMoveReductions = enabled;
+    }
+
+    /**
+     * switches multi-cut pruning on or off: a null window node is pruned if
+     * several of its first moves cause a cutoff in a search of reduced depth.
+     * Off by default.
+     * @param enabled whether or not to use multi-cut pruning
+     */
+    public void setMultiCut(boolean enabled) {
+        multiCut = enabled;
+    }
+
+    boolean useLateMoveReductions() {
+        return lateMoveReductions;
+    }
+
+    boolean useMultiCut() {
+        return multiCut;
+    }
+
+    /**
+     * returns statistics of the selective search of the last search, summed
+     * over all search threads: {moves searched with reduced depth, reduced
+     * moves searched again at full depth, nodes pruned by multi-cut, nodes
+     * spent in multi-cut searches that did not prune}.
+     * @return the four counts
+     */
+    public long[] getSelectiveSearchStatistics() {
+        long[] statistics = new long[4];
+        for (Searcher searcher : searchers) {
+            statistics[0] += searcher.getReductionCount();
+            statistics[1] += searcher.getReSearchCount();
+            statistics[2] += searcher.getMultiCutCount();
+            statistics[3] += searcher.getMultiCutNodeCount();
+        }
+        return statistics;
+    }
+
+    /**
+     * switches move ordering by killer moves (per ply, the last two moves that
+     * caused a cutoff) on or off.
+     * @param enabled whether or not to use killer moves
+     */
+    public void setKillerMoves(boolean enabled) {
+        killerMoves = enabled;
+    }
+
+    /**
+     * switches move ordering by the history heuristic (moves that caused
+     * cutoffs anywhere in the tree, by begin and end square) on or off.
+     * @param enabled whether or not to use the history heuristic
+     */
+    public void setHistoryHeuristic(boolean enabled) {
+        historyHeuristic = enabled;
+    }
+
+    boolean useKillerMoves() {
+        return killerMoves;
+    }
+
+    boolean useHistoryHeuristic() {
+        return historyHeuristic;
+    }
+
+    /**
+     * lets the search look up the positions with few pieces in an endgame
+     * tablebase instead of searching them.
+     * @param tablebase tablebase, or null for none
+     */
+    public void setTablebase(EndgameTablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    EndgameTablebase getTablebase() {
+        return tablebase;
+    }
+
+    /**
+     * replaces the weights of the evaluation, e.g. by weights tuned by
+     * EvaluationTuner. Must not be called during a search.
+     * @param weights new weights
+     */
+    public void setWeights(EvaluationWeights weights) {
+        this.weights = weights;
+        pieceSquare = weights.pieceSquareTable();
+    }
+
+    /** @return the weights of the evaluation **/
+    public EvaluationWeights getWeights() {
+        return weights;
+    }
+
+    /**
+     * switches the line that getMove() prints for every move on or off.
+     * @param verbose whether or not to print
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    /**
+     * lets getMove() play the move of an opening book, without searching,
+     * in the positions that are in the book.
+     * @param book opening book, or null for none
+     */
+    public void setOpeningBook(OpeningBook book) {
+        openingBook = book;
+    }
+
+    /**
+     * sets the maximum number of nodes of the quiescence search at a leaf of
+     * the search, which searches captures until a position without captures
+     * is reached.
+     * @param limit maximum number of nodes; 0 switches quiescence search off
+     */
+    public void setQuiescenceNodeLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit: " + limit);
+        }
+        quiescenceNodeLimit = limit;
+    }
+
+    int getQuiescenceNodeLimit() {
+        return quiescenceNodeLimit;
+    }
+
+    // Lazy SMP: every helper runs its own iterative deepening on a clone of
+    // the state. The helpers only share the transposition table with the main
+    // search, which picks up their results as cutoffs and move ordering.
+    private List<Future<?>> startHelpers(BitboardState state) {
+        List<Future<?>> helpers = new ArrayList<>();
+        if (threads > 1 && helperPool == null) {
+            helperPool = Executors.newFixedThreadPool(threads - 1, r -> {
+                Thread t = new Thread(r, getName() + "-helper");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        for (int i = 1; i < threads; i++) {
+            final Searcher helper = searchers[i];
+            final int firstDepth = 1 + i % 2; // half of the helpers search one ply deeper
+            helper.setState(state.clone());
+            helpers.add(helperPool.submit(() -> {
+                try {
+                    for (int maxDepth = firstDepth; maxDepth < 200; maxDepth++) {
+                        helper.searchRoot(maxDepth);
+                    }
+                } catch (AIStoppedException ex) {
                 }
-                state.undoMove(move);
-            }
+            }));
         }
-        lastScore = bestScore; // Store best score for use in getValue()
-        // Move bestMove to the first position so it gets evaluated first on the next iteration
-        if (moves.get(0) != bestMove) {
-            moves.remove(bestMove);
-            moves.add(0, bestMove);
+        return helpers;
+    }
+
+    private void stopHelpers(List<Future<?>> helpers) {
+        shouldStop = true;
+        for (Future<?> helper : helpers) {
+            try {
+                helper.get();
+            } catch (InterruptedException | ExecutionException ex) {
+                LOG.log(Level.WARNING, "helper search failed", ex);
+            }
         }
-        return bestMove;
+    }
+
+    @Override
+    public Integer getValue() {
+        return lastScore;
     }
     
     @Override
     public void stop() {
         shouldStop = true;
     }
-    
-    // Standard alpha-beta algorithm with stop-check to enable stopping
-    // when deepening iteratively
-    // White maximizes score, black minimizes
-    int alphaBeta(GameNode node, int remainingDepth, int alpha, int beta) throws AIStoppedException {
-        GameState state = node.getGameState();
-        if (remainingDepth == 0 || state.isEndState()) {
-            return evaluate((DraughtsState) state);
-        }
-        if (shouldStop) {
-            shouldStop = false;
-            throw new AIStoppedException();
-        }
-        List<Move> moves = state.getMoves();
-        if (state.isWhiteToMove()) { // Maximizing player
-            for (Move move : moves) {
-                state.doMove(move);
-                alpha = Math.max(alpha, alphaBeta(new GameNode(state), remainingDepth - 1, alpha, beta));
-                state.undoMove(move);
-                if (beta <= alpha) {
-                    break;
-                }
-            }
-            return alpha;
-        } else { // Minimizing player
-            for (Move move : moves) {
-                state.doMove(move);
-                beta = Math.min(beta, alphaBeta(new GameNode(state), remainingDepth - 1, alpha, beta));
-                state.undoMove(move);
-                if (beta <= alpha) {
-                    break;
-                }
+
+    @Override
+    public void setTimeControl(TimeControl timeControl) {
+        nextTimeControl = timeControl;
+    }
+
+    /**
+     * returns whether or not the search should stop as soon as possible,
+     * because stop() was called or the hard deadline has passed. Reads the
+     * clock, so the search calls this once per STOP_CHECK_INTERVAL nodes,
+     * quiescence nodes included.
+     * @return whether or not the search should stop
+     */
+    boolean shouldStop() {
+        if (!shouldStop) {
+            TimeControl tc = timeControl;
+            if (tc != null && tc.hardDeadlinePassed(System.nanoTime())) {
+                shouldStop = true;
             }
-            return beta;
         }
+        return shouldStop;
     }
 
-    final static private int SCORE_WHITE_WIN = Integer.MAX_VALUE - 1;
-    final static private int SCORE_BLACK_WIN = Integer.MIN_VALUE + 1;
+    /** number of nodes between two calls of shouldStop(), a power of 2. **/
+    final static int STOP_CHECK_INTERVAL = 1024;
+
+    final static int SCORE_WHITE_WIN = Integer.MAX_VALUE - 1;
+    final static int SCORE_BLACK_WIN = Integer.MIN_VALUE + 1;
+    // score of a position that the tablebase says is won, minus the number
+    // of plies until the winner captures or promotes; above any evaluation
+    final static int SCORE_TABLEBASE_WIN = 1000000;
     
-    int evaluate(DraughtsState ds) {
-        // Check if someone won
-        if (ds.isEndState()) {
-            if (ds.isWhiteToMove()) {
-                return SCORE_BLACK_WIN;
-            } else {
-                return SCORE_WHITE_WIN;
-            }
+    /**
+     * lets state keep the material and row bonus terms of evaluate() up to
+     * date while moves are done and undone, so that evaluate() takes
+     * constant time for this state and its clones.
+     * @param state state
+     */
+    public void initEvaluation(BitboardState state) {
+        state.setPieceSquareTable(pieceSquare);
+    }
+
+    /**
+     * Static evaluation of a state in which the player to move has a move;
+     * the search itself scores states without moves.
+     * @param ds state
+     * @return score, positive is good for white
+     */
+    public int evaluate(BitboardState ds) {
+        if (ds.getPieceSquareTable() != pieceSquare) {
+            return evaluateFull(ds); // initEvaluation() was not called for ds
+        }
+        int score = ds.getPieceSquareScore();
+        if (CHECK_EVALUATION && score != evaluateFull(ds)) {
+            throw new IllegalStateException("incremental evaluation " + score
+                    + " != full evaluation " + evaluateFull(ds) + " in\n" + ds);
         }
+        return score;
+    }
 
+    /**
+     * evaluate() by a scan of all pieces on the board.
+     * @param ds state
+     * @return score, positive is good for white
+     */
+    public int evaluateFull(BitboardState ds) {
         // Calculate score of all pieces that are on the board
+        // The 10x10 board has 10 rows, and 5 possible pieces per row
+        // (row = square / 5).
+        // Pieces that are close to the other end are preferable,
+        // because they are more likely to become a king.
+        // "The other end" = row 0 for white,
+        // "The other end" = row 9 for black.
+        EvaluationWeights w = weights;
         int whitePieceScore = 0;
         int blackPieceScore = 0;
-        int[] pieces = ds.getPieces();
-        for (int i = 0; i < pieces.length; ++i) {
-            int piece = pieces[i];
-            // The 10x10 board has 10 rows, and 5 possible pieces per row.
-            // Pieces that are close to the other end are preferable,
-            // because they are more likely to become a king.
-            // "The other end" = row 0 for white,
-            // "The other end" = row 9 for black.
-            int row = (int)Math.floor((i - 1) / 5);
-
-            switch (piece) {
-                case DraughtsState.WHITEKING:
-                    whitePieceScore += 3000;
-                    // Getting a king home is preferred over keeping a king at the end.
-                    whitePieceScore += row;
-                    break;
-                case DraughtsState.WHITEPIECE:
-                    whitePieceScore += 1000;
-                    whitePieceScore += ROW_BONUS[9 - row];
-                    break;
-                case DraughtsState.BLACKKING:
-                    blackPieceScore += 3000;
-                    // Getting a king home is preferred over keeping a king at the end.
-                    blackPieceScore += 9 - row;
-                    break;
-                case DraughtsState.BLACKPIECE:
-                    blackPieceScore += 1000;
-                    blackPieceScore += ROW_BONUS[row];
-                    break;
-            }
+        for (long bb = ds.getWhiteKings(); bb != 0; bb &= bb - 1) {
+            int row = Long.numberOfTrailingZeros(bb) / 5;
+            whitePieceScore += w.king;
+            // Getting a king home is preferred over keeping a king at the end.
+            whitePieceScore += w.kingRow * row;
+        }
+        for (long bb = ds.getWhiteMen(); bb != 0; bb &= bb - 1) {
+            int row = Long.numberOfTrailingZeros(bb) / 5;
+            whitePieceScore += w.man;
+            whitePieceScore += w.rowBonus[9 - row];
+        }
+        for (long bb = ds.getBlackKings(); bb != 0; bb &= bb - 1) {
+            int row = Long.numberOfTrailingZeros(bb) / 5;
+            blackPieceScore += w.king;
+            // Getting a king home is preferred over keeping a king at the end.
+            blackPieceScore += w.kingRow * (9 - row);
+        }
+        for (long bb = ds.getBlackMen(); bb != 0; bb &= bb - 1) {
+            int row = Long.numberOfTrailingZeros(bb) / 5;
+            blackPieceScore += w.man;
+            blackPieceScore += w.rowBonus[row];
         }
 
         int pieceScore = whitePieceScore - blackPieceScore;
@@ -201,7 +784,8 @@ public class AlphaBetaPlayer extends DraughtsPlayer {
         return totalScore;
     }
 
-    private static class AIStoppedException extends Exception {
+    static class AIStoppedException extends Exception {
+        private static final long serialVersionUID = 1L;
 
         public AIStoppedException() {
         }
@@ -0,0 +1,205 @@
+package nl.tue.s2id90.group11;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import nl.tue.s2id90.draughts.BitboardState;
+
+/**
+ * Win/draw/loss databases of endgames with few pieces, made by
+ * TablebaseGenerator. There is one file per material signature: the numbers
+ * of white men, white kings, black men and black kings. A file holds a
+ * 16 byte header (magic, the four numbers, the number of positions) followed
+ * by one byte per position, see index(). The byte is the value for the player
+ * to move:
+ * <ul>
+ * <li>0: draw (also used for impossible positions);</li>
+ * <li>d + 1 &gt; 0: win, in d plies the winner can capture or promote a piece
+ * (or the loser has no moves), after which a smaller database takes over;</li>
+ * <li>-(d + 1) &lt; 0: loss in d plies, in the same sense.</li>
+ * </ul>
+ * The files are memory mapped and never copied onto the heap. A tablebase is
+ * immutable after it has been opened, and probe() only reads the mapped
+ * buffers with absolute gets, so it needs no locks and one instance can be
+ * shared by all engines, see open().
+ * @author dennis
+ */
+public final class EndgameTablebase {
+    /** result of probe() for positions without a database. **/
+    public static final int NOT_FOUND = Integer.MIN_VALUE;
+
+    static final int MAGIC = 0x44544231;    // "DTB1"
+    static final int HEADER_SIZE = 16;
+    static final String SUFFIX = ".dtb";
+    /** maximum number of pieces of one kind in a signature. **/
+    static final int MAX_KIND = 7;
+
+    // BINOMIAL[n][k] = n choose k
+    private static final long[][] BINOMIAL = new long[51][MAX_KIND + 2];
+
+    static {
+        for (int n = 0; n <= 50; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k < BINOMIAL[n].length; k++) {
+                BINOMIAL[n][k] = n == 0 ? 0 : BINOMIAL[n - 1][k - 1] + BINOMIAL[n - 1][k];
+            }
+        }
+    }
+
+    private static final Map<Path, EndgameTablebase> OPENED = new ConcurrentHashMap<>();
+
+    // tables[signature(...)]: the mapped file, or null
+    private final ByteBuffer[] tables = new ByteBuffer[1 << 12];
+    private final int maxPieces;
+
+    /**
+     * maps all database files in dir.
+     * @param dir directory with the files of TablebaseGenerator
+     * @throws IOException if a file can not be read or is not a database
+     */
+    EndgameTablebase(Path dir) throws IOException {
+        int max = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : files) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    if (table.limit() < HEADER_SIZE || table.getInt(0) != MAGIC) {
+                        throw new IOException("not a tablebase: " + file);
+                    }
+                    int wm = table.get(4), wk = table.get(5), bm = table.get(6), bk = table.get(7);
+                    if ((long) table.getInt(8) != size(wm, wk, bm, bk)
+                            || table.limit() != HEADER_SIZE + table.getInt(8)) {
+                        throw new IOException("bad size: " + file);
+                    }
+                    tables[signature(wm, wk, bm, bk)] = table;
+                    max = Math.max(max, wm + wk + bm + bk);
+                }
+            }
+        }
+        maxPieces = max;
+    }
+
+    /**
+     * returns the tablebase in dir, which is opened once and then shared.
+     * @param dir directory with the files of TablebaseGenerator
+     * @return tablebase
+     * @throws IOException if a file can not be read or is not a database
+     */
+    public static EndgameTablebase open(Path dir) throws IOException {
+        Path key = dir.toAbsolutePath().normalize();
+        EndgameTablebase tablebase = OPENED.get(key);
+        if (tablebase == null) {
+            tablebase = new EndgameTablebase(key);
+            EndgameTablebase other = OPENED.putIfAbsent(key, tablebase);
+            if (other != null) {
+                tablebase = other;
+            }
+        }
+        return tablebase;
+    }
+
+    /** @return the largest number of pieces of the databases **/
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * looks up the value of s for the player to move.
+     * @param s state
+     * @return value as stored in the files (see above), or NOT_FOUND
+     */
+    public int probe(BitboardState s) {
+        long wm = s.getWhiteMen(), wk = s.getWhiteKings(), bm = s.getBlackMen(), bk = s.getBlackKings();
+        int nwm = Long.bitCount(wm), nwk = Long.bitCount(wk), nbm = Long.bitCount(bm), nbk = Long.bitCount(bk);
+        if (nwm > MAX_KIND || nwk > MAX_KIND || nbm > MAX_KIND || nbk > MAX_KIND) {
+            return NOT_FOUND;
+        }
+        ByteBuffer table = tables[signature(nwm, nwk, nbm, nbk)];
+        if (table == null) {
+            return NOT_FOUND;
+        }
+        return table.get(HEADER_SIZE + index(wm, wk, bm, bk, s.isWhiteToMove()));
+    }
+
+    /** @return the index of the database of a material signature in tables **/
+    static int signature(int wm, int wk, int bm, int bk) {
+        return ((wm * 8 + wk) * 8 + bm) * 8 + bk;
+    }
+
+    /**
+     * @return number of positions of the database of a material signature,
+     * including impossible ones; may exceed the range of int
+     */
+    static long size(int wm, int wk, int bm, int bk) {
+        return 2 * BINOMIAL[50][wm] * BINOMIAL[50][wk] * BINOMIAL[50][bm] * BINOMIAL[50][bk];
+    }
+
+    /**
+     * the index of a position in the database of its material signature: the
+     * squares of every kind of piece are numbered as a combination of squares
+     * (the combinatorial number system), and these numbers and the player to
+     * move are combined as the digits of a mixed radix number.
+     */
+    static int index(long wm, long wk, long bm, long bk, boolean whiteToMove) {
+        long i = rank(wm);
+        i = i * BINOMIAL[50][Long.bitCount(wk)] + rank(wk);
+        i = i * BINOMIAL[50][Long.bitCount(bm)] + rank(bm);
+        i = i * BINOMIAL[50][Long.bitCount(bk)] + rank(bk);
+        return (int) (2 * i + (whiteToMove ? 0 : 1));
+    }
+
+    /**
+     * sets s to the position with the given index in the database of a
+     * material signature; the inverse of index().
+     * @return false if it is not a possible position: pieces on the same
+     * square or men on the row where they would have been promoted
+     */
+    static boolean setPosition(BitboardState s, int index, int wm, int wk, int bm, int bk) {
+        boolean whiteToMove = (index & 1) == 0;
+        long i = index >>> 1;
+        long r = BINOMIAL[50][bk];
+        long blackKings = unrank(i % r, bk);
+        i /= r;
+        r = BINOMIAL[50][bm];
+        long blackMen = unrank(i % r, bm);
+        i /= r;
+        r = BINOMIAL[50][wk];
+        long whiteKings = unrank(i % r, wk);
+        long whiteMen = unrank(i / r, wm);
+        if (Long.bitCount(whiteMen | whiteKings | blackMen | blackKings) != wm + wk + bm + bk
+                || (whiteMen & 0x1FL) != 0 || (blackMen & (0x1FL << 45)) != 0) {
+            return false;
+        }
+        s.setPosition(whiteMen, whiteKings, blackMen, blackKings, whiteToMove);
+        return true;
+    }
+
+    // number of the set of squares bb among the sets of its size
+    private static long rank(long bb) {
+        long r = 0;
+        for (int i = 1; bb != 0; i++, bb &= bb - 1) {
+            r += BINOMIAL[Long.numberOfTrailingZeros(bb)][i];
+        }
+        return r;
+    }
+
+    // the set of k squares with number r
+    private static long unrank(long r, int k) {
+        long bb = 0;
+        int square = 50;
+        for (int i = k; i > 0; i--) {
+            do {
+                square--;
+            } while (BINOMIAL[square][i] > r);
+            r -= BINOMIAL[square][i];
+            bb |= 1L << square;
+        }
+        return bb;
+    }
+}
@@ -0,0 +1,286 @@
+package nl.tue.s2id90.group11;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import nl.tue.s2id90.draughts.BitboardState;
+import nl.tue.s2id90.draughts.PositionFile;
+
+/**
+ * Tunes the EvaluationWeights by Texel's method: the weights are chosen such
+ * that the evaluation predicts the results of a set of games as well as
+ * possible. The result r of a position (1, 0.5 or 0 for white) is predicted
+ * by 1 / (1 + 10^(-K e / 400)), where e is the evaluation of the position, and
+ * the tuner minimizes the mean squared error of these predictions. K is fitted
+ * first, for the start weights, and is then kept fixed.
+ * <pre>
+ * usage: EvaluationTuner [-threads n] [-weights file] [-out file] positions...
+ * </pre>
+ * The positions files hold one "FEN result" per line, as written by
+ * Match -record, or are PositionFiles (files ending in .dps). Positions in
+ * which the player to move must capture are skipped, because their
+ * evaluation says little about their result. The weights start at -weights,
+ * or at the defaults, and the tuned weights are written to -out
+ * (weights.properties by default), which AlphaBetaPlayer loads with
+ * -Dgroup11.weights=file.
+ *
+ * The evaluation is linear in the weights, so a position is stored as its
+ * 13 features (the sums of which the weights are the factors) in one short
+ * array, with its result in a byte array: 27 bytes per position, so millions
+ * of positions fit in memory. The weights are tuned one at a time (coordinate
+ * descent) and the error is computed in parallel by a ForkJoinPool. The value
+ * of a man stays fixed, because it is interchangeable with the row bonuses:
+ * every man has exactly one row.
+ * @author dennis
+ */
+public class EvaluationTuner {
+    // features: man, king, row bonus 0..9, king row
+    private static final int MAN = 0, KING = 1, ROW = 2, KING_ROW = 12;
+    private static final int FEATURES = 13;
+    // weights that are tuned; a man never stands on row 9 of its own
+    // advance, as it is promoted there, so row bonus 9 is not tuned
+    private static final int[] TUNED = {KING, ROW, ROW + 1, ROW + 2, ROW + 3, ROW + 4, ROW + 5,
+        ROW + 6, ROW + 7, ROW + 8, KING_ROW};
+    private static final int CHUNK = 1 << 14;   // positions per fork/join task
+    // the features of all positions are in one array, with an int index
+    private static final int MAX_POSITIONS = (Integer.MAX_VALUE - 8) / FEATURES;
+
+    private short[] features = new short[FEATURES * 1024];
+    private byte[] results = new byte[1024];    // 2 * score of white: 2, 1 or 0
+    private int size = 0;
+    private ForkJoinPool pool;
+    private double k = 1;
+
+    /**
+     * @param args the command line arguments
+     * @throws IOException if a file can not be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        EvaluationWeights start = EvaluationWeights.defaults();
+        Path out = Paths.get("weights.properties");
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-threads": threads = Integer.parseInt(args[++i]); break;
+                case "-weights": start = EvaluationWeights.load(Paths.get(args[++i])); break;
+                case "-out":     out = Paths.get(args[++i]); break;
+                default:         files.add(Paths.get(args[i]));
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("usage: EvaluationTuner [-threads n] [-weights file] [-out file] positions...");
+            System.exit(1);
+        }
+        EvaluationTuner tuner = new EvaluationTuner(threads);
+        for (Path file : files) {
+            tuner.read(file);
+        }
+        if (tuner.size == 0) {
+            System.err.println("no positions");
+            System.exit(1);
+        }
+        EvaluationWeights tuned = tuner.tune(start);
+        tuned.save(out, String.format(Locale.ROOT, "tuned on %d positions, K = %.4f", tuner.size, tuner.k));
+        System.out.println(tuned);
+    }
+
+    /** @param threads number of threads that compute the error **/
+    public EvaluationTuner(int threads) {
+        pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * adds the quiet positions of a file.
+     * @param file file with one "FEN result" per line
+     * @throws IOException if the file can not be read
+     */
+    public void read(Path file) throws IOException {
+        if (file.toString().endsWith(".dps")) {
+            readPositionFile(file);
+            return;
+        }
+        long[] moves = new long[BitboardState.MAX_MOVES];
+        int skipped = 0;
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int space = line.lastIndexOf(' ');
+                BitboardState s = BitboardState.fromFEN(line.substring(0, space).trim());
+                double result = Double.parseDouble(line.substring(space + 1));
+                if (!add(s, (byte) Math.round(2 * result), moves)) {
+                    skipped++;
+                }
+            }
+        }
+        System.out.println(file + ": " + size + " positions, " + skipped + " skipped");
+    }
+
+    // adds the labelled positions of a PositionFile
+    private void readPositionFile(Path file) throws IOException {
+        long[] moves = new long[BitboardState.MAX_MOVES];
+        BitboardState s = new BitboardState();
+        int skipped = 0;
+        PositionFile.Cursor cursor = new PositionFile(file).cursor();
+        while (cursor.next()) {
+            cursor.get(s);
+            if (cursor.getResult() == PositionFile.NO_RESULT || !add(s, (byte) cursor.getResult(), moves)) {
+                skipped++;
+            }
+        }
+        System.out.println(file + ": " + size + " positions, " + skipped + " skipped");
+    }
+
+    // adds s if it is quiet; returns whether or not it was added
+    private boolean add(BitboardState s, byte result, long[] moves) {
+        // captures are compulsory, so the first move tells whether s is quiet
+        int n = s.generateMoves(moves);
+        if (n == 0 || BitboardState.moveCaptures(moves[0]) != 0) {
+            return false;
+        }
+        if (size == results.length) {
+            long capacity = Math.min(2L * size, MAX_POSITIONS);
+            if (capacity == size) {
+                throw new IllegalStateException("more than " + MAX_POSITIONS + " positions");
+            }
+            results = Arrays.copyOf(results, (int) capacity);
+            features = Arrays.copyOf(features, (int) (capacity * FEATURES));
+        }
+        int f = size * FEATURES;
+        for (long bb = s.getWhiteKings(); bb != 0; bb &= bb - 1) {
+            features[f + KING]++;
+            features[f + KING_ROW] += Long.numberOfTrailingZeros(bb) / 5;
+        }
+        for (long bb = s.getWhiteMen(); bb != 0; bb &= bb - 1) {
+            features[f + MAN]++;
+            features[f + ROW + 9 - Long.numberOfTrailingZeros(bb) / 5]++;
+        }
+        for (long bb = s.getBlackKings(); bb != 0; bb &= bb - 1) {
+            features[f + KING]--;
+            features[f + KING_ROW] -= 9 - Long.numberOfTrailingZeros(bb) / 5;
+        }
+        for (long bb = s.getBlackMen(); bb != 0; bb &= bb - 1) {
+            features[f + MAN]--;
+            features[f + ROW + Long.numberOfTrailingZeros(bb) / 5]--;
+        }
+        results[size++] = result;
+        return true;
+    }
+
+    /**
+     * fits K for the start weights, and then tunes the weights.
+     * @param start start weights
+     * @return tuned weights
+     */
+    public EvaluationWeights tune(EvaluationWeights start) {
+        int[] w = new int[FEATURES];
+        w[MAN] = start.man;
+        w[KING] = start.king;
+        System.arraycopy(start.rowBonus, 0, w, ROW, EvaluationWeights.ROWS);
+        w[KING_ROW] = start.kingRow;
+
+        double best = error(w);
+        for (double step = 0.5; step > 1e-4; step /= 2) {
+            best = fitK(w, step, best);
+        }
+        System.out.println(String.format(Locale.ROOT, "K = %.4f, error %.6f", k, best));
+
+        for (int step = 64; step >= 1; step /= 2) {
+            boolean improved = true;
+            while (improved) {
+                improved = false;
+                for (int i : TUNED) {
+                    for (int sign = 1; sign >= -1; sign -= 2) {
+                        // walk in this direction as long as the error decreases
+                        for (double e = change(w, i, sign * step); e < best; e = change(w, i, sign * step)) {
+                            best = e;
+                            improved = true;
+                        }
+                        w[i] -= sign * step;    // undo the step that did not help
+                    }
+                }
+                System.out.println(String.format(Locale.ROOT, "step %d: error %.6f %s", step, best,
+                        Arrays.toString(w)));
+            }
+        }
+        return new EvaluationWeights(w[MAN], w[KING], Arrays.copyOfRange(w, ROW, ROW + EvaluationWeights.ROWS),
+                w[KING_ROW]);
+    }
+
+    // adds delta to w[i]; returns the error
+    private double change(int[] w, int i, int delta) {
+        w[i] += delta;
+        return error(w);
+    }
+
+    // moves K by step in the direction that decreases the error, as long as it does
+    private double fitK(int[] w, double step, double best) {
+        for (int sign = 1; sign >= -1; sign -= 2) {
+            for (;;) {
+                k += sign * step;
+                double e = k > 0 ? error(w) : Double.MAX_VALUE;
+                if (e >= best) {
+                    k -= sign * step;
+                    break;
+                }
+                best = e;
+            }
+        }
+        return best;
+    }
+
+    // mean squared error of the predictions by weights w
+    private double error(int[] w) {
+        return pool.invoke(new ErrorTask(w, k, 0, size)) / size;
+    }
+
+    /** sum of the squared errors of the positions from .. to-1. **/
+    private class ErrorTask extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+        private final int[] w;
+        private final double k;
+        private final int from, to;
+
+        ErrorTask(int[] w, double k, int from, int to) {
+            this.w = w;
+            this.k = k;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Double compute() {
+            if (to - from > CHUNK) {
+                int mid = (from + to) >>> 1;
+                ErrorTask left = new ErrorTask(w, k, from, mid);
+                left.fork();
+                double right = new ErrorTask(w, k, mid, to).compute();
+                return right + left.join();
+            }
+            double sum = 0;
+            for (int p = from; p < to; p++) {
+                int f = p * FEATURES;
+                int e = 0;
+                for (int i = 0; i < FEATURES; i++) {
+                    e += w[i] * features[f + i];
+                }
+                double predicted = 1 / (1 + Math.pow(10, -k * e / 400));
+                double error = results[p] / 2.0 - predicted;
+                sum += error * error;
+            }
+            return sum;
+        }
+    }
+}
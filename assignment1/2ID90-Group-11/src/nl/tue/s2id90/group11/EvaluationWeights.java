@@ -0,0 +1,127 @@
+package nl.tue.s2id90.group11;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+import nl.tue.s2id90.draughts.DraughtsState;
+
+/**
+ * The weights of the evaluation of AlphaBetaPlayer: the value of a man and
+ * of a king, a bonus for a man per row it has advanced, and a bonus for a
+ * king per row it is away from the row where it was promoted. Weights are
+ * stored as a properties file (man, king, row0 .. row9, kingRow), as written
+ * by EvaluationTuner.
+ * @author dennis
+ */
+public final class EvaluationWeights {
+    /** number of rows of the board. **/
+    public static final int ROWS = 10;
+
+    final int man;
+    final int king;
+    // bonus for a man per row it has advanced; index 0 = home, index 9 = other side
+    final int[] rowBonus;
+    // bonus for a king per row it is away from the promotion row
+    final int kingRow;
+
+    /**
+     * @param man value of a man
+     * @param king value of a king
+     * @param rowBonus bonus of a man per row it has advanced, 10 values
+     * @param kingRow bonus of a king per row from the row where it was promoted
+     */
+    public EvaluationWeights(int man, int king, int[] rowBonus, int kingRow) {
+        if (rowBonus.length != ROWS) {
+            throw new IllegalArgumentException("rowBonus must have " + ROWS + " values");
+        }
+        this.man = man;
+        this.king = king;
+        this.rowBonus = rowBonus.clone();
+        this.kingRow = kingRow;
+    }
+
+    /** @return the hand-picked weights that are used when no weights file is loaded **/
+    public static EvaluationWeights defaults() {
+        return new EvaluationWeights(1000, 3000, new int[]{
+            // Staying home is preferable to moving one forward, in order to defend
+            // against incoming pieces from the opponent.
+            10,
+            // Otherwise, use Fibonacci to prefer moving forward over moving one by one.
+            1, 2, 3, 5, 8, 13, 21, 34,
+            // Note: The game engine should automatically convert this piece to a king,
+            // so a piece at position 9 is not possible. Nevertheless, define a value
+            // in case the engine has a bug.
+            3000
+        // Getting a king home is preferred over keeping a king at the end.
+        }, 1);
+    }
+
+    /**
+     * reads weights from a properties file; missing weights get their default.
+     * @param file weights file
+     * @return the weights
+     * @throws IOException if the file can not be read
+     */
+    public static EvaluationWeights load(Path file) throws IOException {
+        Properties p = new Properties();
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            p.load(in);
+        }
+        EvaluationWeights d = defaults();
+        int[] rowBonus = new int[ROWS];
+        for (int row = 0; row < ROWS; row++) {
+            rowBonus[row] = get(p, "row" + row, d.rowBonus[row]);
+        }
+        return new EvaluationWeights(get(p, "man", d.man), get(p, "king", d.king), rowBonus,
+                get(p, "kingRow", d.kingRow));
+    }
+
+    private static int get(Properties p, String key, int defaultValue) {
+        String value = p.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    /**
+     * writes these weights as a properties file.
+     * @param file weights file
+     * @param comment first line of the file
+     * @throws IOException if the file can not be written
+     */
+    public void save(Path file, String comment) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("# " + comment + "\n");
+            out.write("man=" + man + "\n");
+            out.write("king=" + king + "\n");
+            for (int row = 0; row < ROWS; row++) {
+                out.write("row" + row + "=" + rowBonus[row] + "\n");
+            }
+            out.write("kingRow=" + kingRow + "\n");
+        }
+    }
+
+    /**
+     * @return the piece-square table of these weights: table[piece][f-1] is
+     * the value of piece on field f, positive for white
+     */
+    int[][] pieceSquareTable() {
+        int[][] table = new int[5][50];
+        for (int s = 0; s < 50; s++) {
+            int row = s / 5;    // white moves towards row 0, black towards row 9
+            table[DraughtsState.WHITEKING][s] = king + kingRow * row;
+            table[DraughtsState.WHITEPIECE][s] = man + rowBonus[9 - row];
+            table[DraughtsState.BLACKKING][s] = -(king + kingRow * (9 - row));
+            table[DraughtsState.BLACKPIECE][s] = -(man + rowBonus[row]);
+        }
+        return table;
+    }
+
+    @Override
+    public String toString() {
+        return "man=" + man + ", king=" + king + ", rowBonus=" + Arrays.toString(rowBonus) + ", kingRow=" + kingRow;
+    }
+}
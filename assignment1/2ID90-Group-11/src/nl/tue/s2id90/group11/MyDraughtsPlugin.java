@@ -4,6 +4,10 @@
  */
 package nl.tue.s2id90.group11;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import net.xeoh.plugins.base.annotations.PluginImplementation;
 import nl.tue.s2id90.draughts.DraughtsPlayerProvider;
 import nl.tue.s2id90.draughts.DraughtsPlugin;
@@ -21,6 +25,44 @@ public class MyDraughtsPlugin extends DraughtsPlayerProvider implements Draughts
         // During the final competition you should make only your 
         // best player available. For testing it might be handy
         // to make more than one player available.
-        super(new AlphaBetaPlayer());
+        // The number of search threads can be set with -Dgroup11.threads=N,
+        // pondering is switched on with -Dgroup11.ponder=true and the
+        // endgame tablebase is used with -Dgroup11.tablebase=directory and
+        // the opening book with -Dgroup11.book=file. Weights of
+        // EvaluationTuner are loaded with -Dgroup11.weights=file
+        super(createPlayer());
+    }
+
+    private static AlphaBetaPlayer createPlayer() {
+        AlphaBetaPlayer player = new AlphaBetaPlayer(Integer.getInteger("group11.threads", 1));
+        player.setPondering(Boolean.getBoolean("group11.ponder"));
+        String tablebase = System.getProperty("group11.tablebase");
+        if (tablebase != null) {
+            try {
+                player.setTablebase(EndgameTablebase.open(Paths.get(tablebase)));
+            } catch (IOException ex) {
+                Logger.getLogger(MyDraughtsPlugin.class.getName()).log(Level.WARNING,
+                        "endgame tablebase can not be opened", ex);
+            }
+        }
+        String book = System.getProperty("group11.book");
+        if (book != null) {
+            try {
+                player.setOpeningBook(OpeningBook.open(Paths.get(book)));
+            } catch (IOException ex) {
+                Logger.getLogger(MyDraughtsPlugin.class.getName()).log(Level.WARNING,
+                        "opening book can not be opened", ex);
+            }
+        }
+        String weights = System.getProperty("group11.weights");
+        if (weights != null) {
+            try {
+                player.setWeights(EvaluationWeights.load(Paths.get(weights)));
+            } catch (IOException | NumberFormatException ex) {
+                Logger.getLogger(MyDraughtsPlugin.class.getName()).log(Level.WARNING,
+                        "evaluation weights can not be read", ex);
+            }
+        }
+        return player;
     }
 }
@@ -0,0 +1,131 @@
+package nl.tue.s2id90.group11;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import nl.tue.s2id90.draughts.BitboardState;
+
+/**
+ * An opening book made by OpeningBookBuilder. The file holds an 8 byte header
+ * (magic, number of entries) followed by entries of 24 bytes: the hash key of
+ * a position (see BitboardState#hashKey()), a packed move, the number of times
+ * the move was chosen in that position, and the mean score of the searches
+ * that chose it, for the player to move. The entries are sorted by hash key,
+ * and the entries of one position by decreasing count.
+ *
+ * The file is memory mapped and an entry is found by binary search, so a
+ * lookup takes microseconds and the book is not copied onto the heap. A book
+ * is immutable, so one instance can be shared by all engines, see open().
+ * @author dennis
+ */
+public final class OpeningBook {
+    static final int MAGIC = 0x444F4231;    // "DOB1"
+    static final int HEADER_SIZE = 8;
+    static final int ENTRY_SIZE = 24;
+
+    private static final Map<Path, OpeningBook> OPENED = new ConcurrentHashMap<>();
+
+    private final ByteBuffer book;
+    private final int size;
+
+    /**
+     * maps a book file.
+     * @param file file of OpeningBookBuilder
+     * @throws IOException if the file can not be read or is not a book
+     */
+    OpeningBook(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                // a ByteBuffer has int offsets
+                throw new IOException("opening book larger than 2 GB: " + file);
+            }
+            book = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (book.limit() < HEADER_SIZE || book.getInt(0) != MAGIC
+                || book.limit() != HEADER_SIZE + (long) ENTRY_SIZE * book.getInt(4)) {
+            throw new IOException("not an opening book: " + file);
+        }
+        size = book.getInt(4);
+    }
+
+    /**
+     * returns the book in file, which is opened once and then shared.
+     * @param file file of OpeningBookBuilder
+     * @return the book
+     * @throws IOException if the file can not be read or is not a book
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+        OpeningBook book = OPENED.get(key);
+        if (book == null) {
+            book = new OpeningBook(key);
+            OpeningBook other = OPENED.putIfAbsent(key, book);
+            if (other != null) {
+                book = other;
+            }
+        }
+        return book;
+    }
+
+    /** @return number of entries **/
+    public int size() {
+        return size;
+    }
+
+    /**
+     * looks up the move that was chosen most often in s.
+     * @param s state
+     * @param moves array of BitboardState.MAX_MOVES moves, used for the
+     * legality check of the moves in the book
+     * @return packed move that is legal in s, or 0 if s is not in the book
+     */
+    public long lookup(BitboardState s, long[] moves) {
+        long key = s.hashKey();
+        int i = firstEntry(key);
+        if (i == size || keyAt(i) != key) {
+            return 0;
+        }
+        // a different position with the same hash key has other moves
+        int n = s.generateMoves(moves);
+        for (; i < size && keyAt(i) == key; i++) {
+            long move = moveAt(i);
+            for (int j = 0; j < n; j++) {
+                if (moves[j] == move) {
+                    return move;
+                }
+            }
+        }
+        return 0;
+    }
+
+    // index of the first entry with a key >= key, or size
+    private int firstEntry(long key) {
+        int low = 0, high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keyAt(mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long keyAt(int i) {
+        return book.getLong(offset(i));
+    }
+
+    private long moveAt(int i) {
+        return book.getLong(offset(i) + 8);
+    }
+
+    // offset of entry i; in a book of at most 2 GB it fits in an int
+    private static int offset(int i) {
+        return Math.toIntExact(HEADER_SIZE + (long) i * ENTRY_SIZE);
+    }
+}
@@ -0,0 +1,156 @@
+package nl.tue.s2id90.group11;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import nl.tue.s2id90.draughts.BitboardState;
+
+/**
+ * Builds an OpeningBook from self-play. Every position of a game, up to the
+ * depth of the book, is searched to a fixed depth. The games play the moves
+ * of these searches, except for a few random moves at the start so that the
+ * games differ. The moves of the searches are counted per position, and every
+ * move that was chosen often enough goes into the book. The games are played
+ * in parallel.
+ * <pre>
+ * usage: OpeningBookBuilder [-games n] [-plies n] [-random n] [-depth n]
+ *                           [-min n] [-threads n] [-seed n] file
+ * </pre>
+ * @author dennis
+ */
+public class OpeningBookBuilder {
+    private int games = 200;        // number of games
+    private int plies = 16;         // moves per game that go into the book
+    private int randomPlies = 2;    // moves at the start of a game that are random
+    private int depth = 10;         // search depth of the other moves
+    private int minCount = 2;       // times a move must be chosen to go into the book
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long seed = 1;
+
+    /**
+     * @param args the command line arguments
+     * @throws IOException if the book can not be written
+     * @throws InterruptedException if interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        OpeningBookBuilder builder = new OpeningBookBuilder();
+        String file = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-games":   builder.games = Integer.parseInt(args[++i]); break;
+                case "-plies":   builder.plies = Integer.parseInt(args[++i]); break;
+                case "-random":  builder.randomPlies = Integer.parseInt(args[++i]); break;
+                case "-depth":   builder.depth = Integer.parseInt(args[++i]); break;
+                case "-min":     builder.minCount = Integer.parseInt(args[++i]); break;
+                case "-threads": builder.threads = Integer.parseInt(args[++i]); break;
+                case "-seed":    builder.seed = Long.parseLong(args[++i]); break;
+                default:         file = args[i];
+            }
+        }
+        if (file == null) {
+            System.err.println("usage: OpeningBookBuilder [-games n] [-plies n] [-random n] [-depth n]"
+                    + " [-min n] [-threads n] [-seed n] file");
+            System.exit(1);
+        }
+        builder.build(Paths.get(file));
+    }
+
+    /**
+     * plays the games and writes the book.
+     * @param file book file
+     * @throws IOException if the book can not be written
+     * @throws InterruptedException if interrupted
+     */
+    public void build(Path file) throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<List<long[]>>> results = new ArrayList<>();
+        for (int game = 0; game < games; game++) {
+            final long gameSeed = seed + game;
+            results.add(pool.submit(() -> playGame(new Random(gameSeed))));
+        }
+        // hash key -> packed move -> {count, sum of scores}
+        Map<Long, Map<Long, long[]>> statistics = new HashMap<>();
+        try {
+            for (Future<List<long[]>> result : results) {
+                for (long[] r : result.get()) {
+                    long[] s = statistics.computeIfAbsent(r[0], k -> new HashMap<>())
+                                         .computeIfAbsent(r[1], m -> new long[2]);
+                    s[0]++;
+                    s[1] += r[2];
+                }
+            }
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        int entries = write(file, statistics);
+        System.out.println(entries + " moves of " + statistics.size() + " positions in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    // one game; returns {hash key, packed move, score for the player to move}
+    // of every searched move
+    private List<long[]> playGame(Random random) {
+        AlphaBetaPlayer player = new AlphaBetaPlayer(1, 18, TranspositionTable.ReplacementPolicy.DEPTH_AND_AGE);
+        BitboardState s = new BitboardState();
+        long[] moves = new long[BitboardState.MAX_MOVES];
+        List<long[]> records = new ArrayList<>();
+        for (int ply = 0; ply < plies; ply++) {
+            int n = s.generateMoves(moves);
+            if (n == 0) {
+                break;
+            }
+            int score = player.searchToDepth(s, depth);
+            long move = player.getSearchedMove();
+            records.add(new long[]{s.hashKey(), move, s.isWhiteToMove() ? score : -score});
+            if (ply < randomPlies) {
+                move = moves[random.nextInt(n)];
+            }
+            s.doMove(move);
+        }
+        return records;
+    }
+
+    // writes the entries sorted by key, and per key by decreasing count;
+    // returns the number of entries
+    private int write(Path file, Map<Long, Map<Long, long[]>> statistics) throws IOException {
+        List<long[]> entries = new ArrayList<>();    // {key, move, count, mean score}
+        for (Map.Entry<Long, Map<Long, long[]>> position : statistics.entrySet()) {
+            for (Map.Entry<Long, long[]> move : position.getValue().entrySet()) {
+                long[] s = move.getValue();
+                if (s[0] >= minCount) {
+                    entries.add(new long[]{position.getKey(), move.getKey(), s[0], s[1] / s[0]});
+                }
+            }
+        }
+        entries.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(b[2], a[2]));
+        Path tmp = Paths.get(file + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeInt(entries.size());
+            for (long[] e : entries) {
+                out.writeLong(e[0]);
+                out.writeLong(e[1]);
+                out.writeInt((int) Math.min(e[2], Integer.MAX_VALUE));
+                out.writeInt((int) e[3]);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        return entries.size();
+    }
+}
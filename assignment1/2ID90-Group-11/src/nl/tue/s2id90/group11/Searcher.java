@@ -0,0 +1,512 @@
+package nl.tue.s2id90.group11;
+
+import nl.tue.s2id90.draughts.BitboardState;
+import nl.tue.s2id90.group11.AlphaBetaPlayer.AIStoppedException;
+
+/**
+ * The alpha-beta search of one thread. Moves are packed longs (see
+ * BitboardState#encodeMove) stored in move lists that are allocated once per
+ * ply, so searching a node does not allocate any objects.
+ * @author dennis
+ */
+class Searcher {
+    /** maximum search depth. **/
+    static final int MAX_PLY = 256;
+
+    private final AlphaBetaPlayer player;
+    private final TranspositionTable transpositionTable;
+    private BitboardState state;
+
+    // moves[ply] holds the moves of the node at distance ply from the root
+    private final long[][] moves = new long[MAX_PLY][BitboardState.MAX_MOVES];
+    // sort keys of the moves in moves[ply]
+    private final int[][] moveScores = new int[MAX_PLY][BitboardState.MAX_MOVES];
+    // two killer moves per ply: moves that recently caused a cutoff at that ply
+    private final long[][] killers = new long[MAX_PLY][2];
+    // history[from][to]: sum of depth^2 of the cutoffs caused by a move from/to these squares
+    private final int[][] history = new int[50][50];
+    private int rootMoveCount;
+    private long bestMove;
+    private long nodes;     // number of alphaBeta calls since setState
+    private long qnodes;    // number of quiescence nodes since setState
+    private int quiescenceBudget;   // nodes left for the current quiescence search
+    // nodes (of alphaBeta and quiesce) until the next player.shouldStop()
+    private int stopCheckCountdown = AlphaBetaPlayer.STOP_CHECK_INTERVAL;
+    private long cutoffs;           // number of beta cutoffs since setState
+    private long firstMoveCutoffs;  // number of those caused by the first move searched
+    private long ttProbes;          // number of transposition table lookups since setState
+    private long ttHits;            // number of those that found the state
+    private long tablebaseHits;     // number of nodes scored by the endgame tablebase
+    // statistics of the selective search, since setState
+    private long reductions;        // moves searched with reduced depth
+    private long reSearches;        // reduced moves searched again at full depth
+    private long multiCuts;         // nodes pruned by multi-cut
+    private long multiCutNodes;     // nodes spent in multi-cut searches that did not prune
+
+    Searcher(AlphaBetaPlayer player, TranspositionTable transpositionTable) {
+        this.player = player;
+        this.transpositionTable = transpositionTable;
+    }
+
+    /**
+     * sets the state to search; the searcher changes this state while
+     * searching, and leaves it in an undefined state when the search is stopped.
+     * @param state state of the root
+     */
+    void setState(BitboardState state) {
+        this.state = state;
+        rootMoveCount = state.generateMoves(moves[0]);
+        bestMove = moves[0][0];
+        nodes = 0;
+        qnodes = 0;
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+        ttProbes = 0;
+        ttHits = 0;
+        tablebaseHits = 0;
+        reductions = 0;
+        reSearches = 0;
+        multiCuts = 0;
+        multiCutNodes = 0;
+        for (long[] k : killers) {
+            k[0] = k[1] = 0;
+        }
+        // keep some of the history of the previous search
+        for (int[] h : history) {
+            for (int to = 0; to < 50; to++) {
+                h[to] >>= 2;
+            }
+        }
+    }
+
+    /** @return number of nodes searched since setState() **/
+    long getNodeCount() {
+        return nodes;
+    }
+
+    /** @return number of quiescence nodes searched since setState() **/
+    long getQuiescenceNodeCount() {
+        return qnodes;
+    }
+
+    /** @return number of beta cutoffs since setState() **/
+    long getCutoffCount() {
+        return cutoffs;
+    }
+
+    /** @return number of beta cutoffs by the first move searched since setState() **/
+    long getFirstMoveCutoffCount() {
+        return firstMoveCutoffs;
+    }
+
+    /** @return number of transposition table lookups since setState() **/
+    long getTTProbeCount() {
+        return ttProbes;
+    }
+
+    /** @return number of transposition table lookups that found the state since setState() **/
+    long getTTHitCount() {
+        return ttHits;
+    }
+
+    /** @return number of nodes scored by the endgame tablebase since setState() **/
+    long getTablebaseHitCount() {
+        return tablebaseHits;
+    }
+
+    /** @return number of moves searched with reduced depth since setState() **/
+    long getReductionCount() {
+        return reductions;
+    }
+
+    /** @return number of reduced moves that were searched again since setState() **/
+    long getReSearchCount() {
+        return reSearches;
+    }
+
+    /** @return number of nodes pruned by multi-cut since setState() **/
+    long getMultiCutCount() {
+        return multiCuts;
+    }
+
+    /** @return number of nodes spent in multi-cut searches that did not prune since setState() **/
+    long getMultiCutNodeCount() {
+        return multiCutNodes;
+    }
+
+    /** @return best move (packed) of the last completed searchRoot() **/
+    long getBestMove() {
+        return bestMove;
+    }
+
+    // Return the score of the best move for this state. This function executes the first
+    //      step of the alphabeta search. By splitting the first step from
+    //      the other we can more easily optimize this step and we don't have
+    //      to return the best move on all depths
+    int searchRoot(int maxDepth) throws AIStoppedException {
+        return searchRoot(maxDepth, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    // searchRoot with the aspiration window (alpha, beta). Returns a score
+    // <= alpha if all moves fail low, in which case the best move is not
+    // changed, and a score >= beta if a move fails high.
+    int searchRoot(int maxDepth, int alpha, int beta) throws AIStoppedException {
+        long[] rootMoves = moves[0];
+        boolean pvs = player.getSearchAlgorithm() == AlphaBetaPlayer.SearchAlgorithm.PVS;
+        int best = -1;
+        int bestScore;
+        if (state.isWhiteToMove()) {
+            // Find best move for white player (highest alpha-beta score)
+            int maxScore = alpha;
+            for (int i = 0; i < rootMoveCount; i++) {
+                state.doMove(rootMoves[i]);
+                int score;
+                if (pvs && i > 0) {
+                    score = alphaBeta(1, maxDepth - 1, maxScore, maxScore + 1);
+                    if (score > maxScore && score < beta) {
+                        score = alphaBeta(1, maxDepth - 1, maxScore, beta);
+                    }
+                } else {
+                    score = alphaBeta(1, maxDepth - 1, maxScore, beta);
+                }
+                state.undoMove(rootMoves[i]);
+                if (score > maxScore) {
+                    maxScore = score;
+                    best = i;
+                    if (maxScore >= beta) {
+                        break;
+                    }
+                }
+            }
+            bestScore = maxScore;
+        } else {
+            // Find best move for black player (lowest alpha-beta score)
+            int minScore = beta;
+            for (int i = 0; i < rootMoveCount; i++) {
+                state.doMove(rootMoves[i]);
+                int score;
+                if (pvs && i > 0) {
+                    score = alphaBeta(1, maxDepth - 1, minScore - 1, minScore);
+                    if (score < minScore && score > alpha) {
+                        score = alphaBeta(1, maxDepth - 1, alpha, minScore);
+                    }
+                } else {
+                    score = alphaBeta(1, maxDepth - 1, alpha, minScore);
+                }
+                state.undoMove(rootMoves[i]);
+                if (score < minScore) {
+                    minScore = score;
+                    best = i;
+                    if (minScore <= alpha) {
+                        break;
+                    }
+                }
+            }
+            bestScore = minScore;
+        }
+        if (best >= 0) {
+            bestMove = rootMoves[best];
+            // Move bestMove to the first position so it gets evaluated first on the next iteration
+            moveToFront(rootMoves, best);
+        }
+        return bestScore;
+    }
+
+    // Standard alpha-beta algorithm with stop-check to enable stopping
+    // when deepening iteratively
+    // White maximizes score, black minimizes
+    // With SearchAlgorithm.PVS all moves after the first are searched with a
+    // null window first, and only searched again with the full window if
+    // they turn out to be better than the moves before.
+    // Results are stored in the transposition table, which is used for
+    // cutoffs and to search the best move of an earlier search first.
+    int alphaBeta(int ply, int remainingDepth, int alpha, int beta) throws AIStoppedException {
+        nodes++;
+        checkStop();
+        long[] nodeMoves = moves[ply];
+        // A leaf only needs its captures for the quiescence search; its
+        // other moves are never searched.
+        int moveCount = remainingDepth == 0 ? state.generateCaptures(nodeMoves)
+                                            : state.generateMoves(nodeMoves);
+        if (moveCount == 0 && (remainingDepth > 0 || !state.hasMoves())) {
+            // The player to move lost
+            return state.isWhiteToMove() ? AlphaBetaPlayer.SCORE_BLACK_WIN
+                                         : AlphaBetaPlayer.SCORE_WHITE_WIN;
+        }
+        EndgameTablebase tablebase = player.getTablebase();
+        if (tablebase != null && Long.bitCount(state.getWhiteMen() | state.getWhiteKings()
+                | state.getBlackMen() | state.getBlackKings()) <= tablebase.getMaxPieces()) {
+            int value = tablebase.probe(state);
+            if (value != EndgameTablebase.NOT_FOUND) {
+                tablebaseHits++;
+                int score = value == 0 ? 0 : value > 0 ? AlphaBetaPlayer.SCORE_TABLEBASE_WIN - value
+                                                       : -AlphaBetaPlayer.SCORE_TABLEBASE_WIN - value;
+                return state.isWhiteToMove() ? score : -score;
+            }
+        }
+        if (remainingDepth == 0) {
+            quiescenceBudget = player.getQuiescenceNodeLimit();
+            return quiesce(ply, moveCount, alpha, beta);
+        }
+        long key = state.hashKey();
+        long entry = transpositionTable.probe(key);
+        ttProbes++;
+        if (entry != TranspositionTable.MISS) {
+            ttHits++;
+            if (TranspositionTable.depth(entry) >= remainingDepth) {
+                int score = TranspositionTable.score(entry);
+                switch (TranspositionTable.bound(entry)) {
+                    case TranspositionTable.EXACT:
+                        return score;
+                    case TranspositionTable.LOWER:
+                        if (score >= beta) return score;
+                        break;
+                    case TranspositionTable.UPPER:
+                        if (score <= alpha) return score;
+                        break;
+                }
+            }
+        }
+        orderMoves(ply, moveCount, entry == TranspositionTable.MISS ? 0 : TranspositionTable.move(entry));
+        boolean white = state.isWhiteToMove();
+        if (player.useMultiCut() && beta - alpha == 1 && remainingDepth >= MULTI_CUT_DEPTH
+                && multiCut(ply, moveCount, remainingDepth, alpha, beta, white)) {
+            multiCuts++;
+            return white ? beta : alpha;
+        }
+        // late move reductions, only in positions without captures
+        boolean lmr = player.useLateMoveReductions() && remainingDepth >= LMR_DEPTH
+                && BitboardState.moveCaptures(nodeMoves[0]) == 0;
+        int alphaOrig = alpha, betaOrig = beta;
+        long best = 0;
+        if (white) { // Maximizing player
+            for (int i = 0; i < moveCount; i++) {
+                long move = nodeMoves[i];
+                state.doMove(move);
+                int score = searchMove(ply, i, remainingDepth, alpha, beta, true, lmr ? reduction(i, remainingDepth) : 0);
+                state.undoMove(move);
+                if (score > alpha) {
+                    alpha = score;
+                    best = move;
+                }
+                if (beta <= alpha) {
+                    cutoff(ply, i, move, remainingDepth);
+                    break;
+                }
+            }
+            int bound = alpha >= beta ? TranspositionTable.LOWER
+                      : alpha > alphaOrig ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+            transpositionTable.store(key, remainingDepth, bound, alpha, TranspositionTable.encodeMove(best));
+            return alpha;
+        } else { // Minimizing player
+            for (int i = 0; i < moveCount; i++) {
+                long move = nodeMoves[i];
+                state.doMove(move);
+                int score = searchMove(ply, i, remainingDepth, alpha, beta, false, lmr ? reduction(i, remainingDepth) : 0);
+                state.undoMove(move);
+                if (score < beta) {
+                    beta = score;
+                    best = move;
+                }
+                if (beta <= alpha) {
+                    cutoff(ply, i, move, remainingDepth);
+                    break;
+                }
+            }
+            int bound = beta <= alpha ? TranspositionTable.UPPER
+                      : beta < betaOrig ? TranspositionTable.EXACT : TranspositionTable.LOWER;
+            transpositionTable.store(key, remainingDepth, bound, beta, TranspositionTable.encodeMove(best));
+            return beta;
+        }
+    }
+
+    // late move reductions: the first LMR_MOVES moves are searched to full
+    // depth, later moves one ply less and very late moves two plies less
+    private static final int LMR_DEPTH = 3;
+    private static final int LMR_MOVES = 3;
+    private static final int LMR_LATE_MOVES = 8;
+
+    private static int reduction(int i, int remainingDepth) {
+        if (i < LMR_MOVES) {
+            return 0;
+        }
+        return i >= LMR_LATE_MOVES && remainingDepth > LMR_DEPTH + 1 ? 2 : 1;
+    }
+
+    // Searches the i-th move of a node, which has just been done, and
+    // returns its score. A reduced move is first searched with a null window
+    // at the reduced depth; only if it does not fail low (for the player to
+    // move) it is verified by a search at full depth. With PVS, moves after
+    // the first get a null window search before a full window search.
+    private int searchMove(int ply, int i, int remainingDepth, int alpha, int beta,
+            boolean white, int reduction) throws AIStoppedException {
+        int depth = remainingDepth - 1;
+        if (reduction > 0) {
+            reductions++;
+            int score = white ? alphaBeta(ply + 1, depth - reduction, alpha, alpha + 1)
+                              : alphaBeta(ply + 1, depth - reduction, beta - 1, beta);
+            if (white ? score <= alpha : score >= beta) {
+                return score;
+            }
+            reSearches++;
+        }
+        if (i > 0 && player.getSearchAlgorithm() == AlphaBetaPlayer.SearchAlgorithm.PVS) {
+            int score = white ? alphaBeta(ply + 1, depth, alpha, alpha + 1)
+                              : alphaBeta(ply + 1, depth, beta - 1, beta);
+            if (score <= alpha || score >= beta) {
+                return score;
+            }
+        }
+        return alphaBeta(ply + 1, depth, alpha, beta);
+    }
+
+    // Multi-cut (Bjornsson and Marsland): in a node that is expected to cut
+    // off (a null window node), the first MULTI_CUT_MOVES moves are searched
+    // with a reduced depth. If MULTI_CUT_CUTS of them cause a cutoff, the node
+    // is assumed to cut off at full depth too and is pruned.
+    private static final int MULTI_CUT_DEPTH = 4;
+    private static final int MULTI_CUT_REDUCTION = 2;
+    private static final int MULTI_CUT_MOVES = 6;
+    private static final int MULTI_CUT_CUTS = 3;
+
+    private boolean multiCut(int ply, int moveCount, int remainingDepth, int alpha, int beta,
+            boolean white) throws AIStoppedException {
+        long[] nodeMoves = moves[ply];
+        long nodesBefore = nodes + qnodes;
+        int cuts = 0;
+        for (int i = 0; i < moveCount && i < MULTI_CUT_MOVES; i++) {
+            state.doMove(nodeMoves[i]);
+            int score = alphaBeta(ply + 1, remainingDepth - 1 - MULTI_CUT_REDUCTION, alpha, beta);
+            state.undoMove(nodeMoves[i]);
+            if (white ? score >= beta : score <= alpha) {
+                if (++cuts >= MULTI_CUT_CUTS) {
+                    return true;
+                }
+            }
+        }
+        multiCutNodes += nodes + qnodes - nodesBefore;
+        return false;
+    }
+
+    // Quiescence search. Captures are compulsory, so a leaf in which the
+    // player to move has to capture is not evaluated: its captures are
+    // searched until a position without captures is reached. There the
+    // player to move stands pat, i.e. the static evaluation is the score.
+    // Every quiescence search from a leaf may visit at most
+    // player.getQuiescenceNodeLimit() nodes; when the budget is used up the
+    // remaining positions are evaluated as they are.
+    // The captures of the node are already in moves[ply]; moveCount is 0 in
+    // a quiet position, which is not lost (the player to move has a move).
+    private int quiesce(int ply, int moveCount, int alpha, int beta) throws AIStoppedException {
+        long[] nodeMoves = moves[ply];
+        if (moveCount == 0  // quiet position: stand pat
+                || quiescenceBudget <= 0 || ply + 1 == MAX_PLY) {
+            return player.evaluate(state);
+        }
+        boolean white = state.isWhiteToMove();
+        for (int i = 0; i < moveCount; i++) {
+            long move = nodeMoves[i];
+            state.doMove(move);
+            qnodes++;
+            quiescenceBudget--;
+            checkStop();
+            int childMoveCount = state.generateCaptures(moves[ply + 1]);
+            int score;
+            if (childMoveCount == 0 && !state.hasMoves()) {
+                // the player to move in the child lost
+                score = white ? AlphaBetaPlayer.SCORE_WHITE_WIN : AlphaBetaPlayer.SCORE_BLACK_WIN;
+            } else {
+                score = quiesce(ply + 1, childMoveCount, alpha, beta);
+            }
+            state.undoMove(move);
+            if (white) {
+                alpha = Math.max(alpha, score);
+            } else {
+                beta = Math.min(beta, score);
+            }
+            if (beta <= alpha) {
+                break;
+            }
+        }
+        return white ? alpha : beta;
+    }
+
+    // Asks the player whether the search must stop, once per
+    // STOP_CHECK_INTERVAL nodes, counting every node of alphaBeta and quiesce
+    // (most nodes are leaves and quiescence nodes).
+    private void checkStop() throws AIStoppedException {
+        if (--stopCheckCountdown == 0) {
+            stopCheckCountdown = AlphaBetaPlayer.STOP_CHECK_INTERVAL;
+            if (player.shouldStop()) {
+                throw new AIStoppedException();
+            }
+        }
+    }
+
+    // Sorts the moves of ply: first the move of the transposition table, then
+    // the killer moves, then the other moves by their history score.
+    private void orderMoves(int ply, int count, int ttMove) {
+        long[] nodeMoves = moves[ply];
+        int[] scores = moveScores[ply];
+        long[] killer = killers[ply];
+        boolean useKillers = player.useKillerMoves(), useHistory = player.useHistoryHeuristic();
+        for (int i = 0; i < count; i++) {
+            long move = nodeMoves[i];
+            int score;
+            if (TranspositionTable.matches(move, ttMove)) {
+                score = TT_MOVE_SCORE;
+            } else if (useKillers && move == killer[0]) {
+                score = KILLER_SCORE + 1;
+            } else if (useKillers && move == killer[1]) {
+                score = KILLER_SCORE;
+            } else if (useHistory) {
+                score = history[BitboardState.moveFrom(move)][BitboardState.moveTo(move)];
+            } else {
+                score = 0;
+            }
+            // insertion sort, highest score first; equal scores keep generator order
+            int j = i;
+            while (j > 0 && scores[j - 1] < score) {
+                scores[j] = scores[j - 1];
+                nodeMoves[j] = nodeMoves[j - 1];
+                j--;
+            }
+            scores[j] = score;
+            nodeMoves[j] = move;
+        }
+    }
+
+    private static final int TT_MOVE_SCORE = 1 << 30;
+    private static final int KILLER_SCORE = 1 << 29;    // history scores stay below this
+    private static final int HISTORY_LIMIT = 1 << 28;
+
+    // move, the i-th move searched at ply, caused a beta cutoff
+    private void cutoff(int ply, int i, long move, int remainingDepth) {
+        cutoffs++;
+        if (i == 0) {
+            firstMoveCutoffs++;
+        }
+        long[] killer = killers[ply];
+        if (move != killer[0]) {
+            killer[1] = killer[0];
+            killer[0] = move;
+        }
+        int[] h = history[BitboardState.moveFrom(move)];
+        int to = BitboardState.moveTo(move);
+        h[to] += remainingDepth * remainingDepth;
+        if (h[to] >= HISTORY_LIMIT) {
+            for (int[] row : history) {
+                for (int t = 0; t < 50; t++) {
+                    row[t] >>= 1;
+                }
+            }
+        }
+    }
+
+    // moves moves[i] to position 0, keeping the order of the other moves
+    private static void moveToFront(long[] moves, int i) {
+        long move = moves[i];
+        System.arraycopy(moves, 0, moves, 1, i);
+        moves[0] = move;
+    }
+}
@@ -0,0 +1,213 @@
+package nl.tue.s2id90.group11;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+import nl.tue.s2id90.draughts.BitboardState;
+
+/**
+ * Generates the databases of EndgameTablebase for all positions with 2 up to
+ * a given number of pieces, with the rules of international draughts as
+ * implemented by BitboardState.
+ * <pre>
+ * usage: TablebaseGenerator [-pieces n] [-threads n] directory
+ * </pre>
+ * The databases are made by retrograde analysis: the values propagate back
+ * from the positions in which the player to move has lost, in passes over
+ * all positions of a database. Pass d finds the positions that are won or
+ * lost in d plies: a position is won if it has a move to a position that was
+ * found lost in an earlier pass, and lost if all its moves lead to positions
+ * that were found won. Captures and promotions lead to a database that was
+ * made before. The positions that are left when a pass finds nothing new are
+ * draws. A pass is split over all threads.
+ * @author dennis
+ */
+public class TablebaseGenerator {
+    // positions per task of a pass
+    private static final int CHUNK = 1 << 14;
+    // distances must fit in the byte of a position
+    private static final int MAX_DISTANCE = 126;
+
+    private final Path dir;
+    private final ForkJoinPool pool;
+    private EndgameTablebase smaller;   // the databases made so far
+
+    /**
+     * @param dir directory for the databases
+     * @param threads number of threads
+     */
+    public TablebaseGenerator(Path dir, int threads) {
+        this.dir = dir;
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * @param args the command line arguments
+     * @throws IOException if a database can not be written
+     * @throws InterruptedException if interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int pieces = 4;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String dir = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-pieces":  pieces = Integer.parseInt(args[++i]); break;
+                case "-threads": threads = Integer.parseInt(args[++i]); break;
+                default:         dir = args[i];
+            }
+        }
+        if (dir == null || pieces < 2) {
+            System.err.println("usage: TablebaseGenerator [-pieces n] [-threads n] directory");
+            System.exit(1);
+        }
+        Files.createDirectories(Paths.get(dir));
+        new TablebaseGenerator(Paths.get(dir), threads).generate(pieces);
+    }
+
+    /**
+     * generates the databases of all material signatures with up to the
+     * given number of pieces that are not in the directory yet. Fewer pieces
+     * come first, and with the same number of pieces fewer men come first,
+     * so captures and promotions always lead to a database that exists.
+     * @param maxPieces maximum number of pieces
+     * @throws IOException if a database can not be written
+     * @throws InterruptedException if interrupted
+     */
+    public void generate(int maxPieces) throws IOException, InterruptedException {
+        for (int pieces = 2; pieces <= maxPieces; pieces++) {
+            for (int men = 0; men <= pieces; men++) {
+                for (int w = 1; w < pieces; w++) {
+                    int b = pieces - w;
+                    for (int wm = Math.max(0, men - b); wm <= Math.min(w, men); wm++) {
+                        int bm = men - wm;
+                        generate(wm, w - wm, bm, b - bm);
+                    }
+                }
+            }
+        }
+    }
+
+    private void generate(int wm, int wk, int bm, int bk) throws IOException, InterruptedException {
+        Path file = dir.resolve(String.format("%d%d%d%d", wm, wk, bm, bk) + EndgameTablebase.SUFFIX);
+        if (Files.exists(file)) {
+            return;
+        }
+        long size = EndgameTablebase.size(wm, wk, bm, bk);
+        if (Math.max(wm, bm) > EndgameTablebase.MAX_KIND || Math.max(wk, bk) > EndgameTablebase.MAX_KIND
+                || size > Integer.MAX_VALUE - EndgameTablebase.HEADER_SIZE) {
+            throw new IllegalArgumentException("database too large: " + file);
+        }
+        long start = System.currentTimeMillis();
+        smaller = new EndgameTablebase(dir);
+        byte[] values = new byte[(int) size];
+        int distance = 0;
+        long found;
+        do {
+            found = pass(values, wm, wk, bm, bk, distance);
+            distance++;
+            if (distance > MAX_DISTANCE) {
+                throw new IllegalStateException("distance too large in " + file);
+            }
+        } while (found > 0 || distance <= 1);  // pass 1 is the first that looks at other databases
+
+        Path tmp = dir.resolve(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            ByteBuffer header = ByteBuffer.allocate(EndgameTablebase.HEADER_SIZE);
+            header.putInt(EndgameTablebase.MAGIC)
+                  .put((byte) wm).put((byte) wk).put((byte) bm).put((byte) bk)
+                  .putInt(values.length);
+            out.write(header.array());
+            out.write(values);
+        }
+        Files.move(tmp, file);
+        System.out.println(file.getFileName() + ": " + size + " positions, longest win "
+                + (distance - 2) + " plies, " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    // one pass over all undecided positions; returns the number of positions
+    // that were decided in distance plies
+    private long pass(byte[] values, int wm, int wk, int bm, int bk, int distance)
+            throws InterruptedException {
+        LongAdder found = new LongAdder();
+        int chunks = (values.length + CHUNK - 1) / CHUNK;
+        try {
+            pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(chunk -> {
+                BitboardState s = new BitboardState();
+                long[] moves = new long[BitboardState.MAX_MOVES];
+                int end = Math.min(values.length, (chunk + 1) * CHUNK);
+                long n = 0;
+                for (int i = chunk * CHUNK; i < end; i++) {
+                    if (values[i] == 0 && EndgameTablebase.setPosition(s, i, wm, wk, bm, bk)) {
+                        byte v = decide(s, moves, values, distance);
+                        if (v != 0) {
+                            values[i] = v;
+                            n++;
+                        }
+                    }
+                }
+                found.add(n);
+            })).get();
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        }
+        return found.sum();
+    }
+
+    // The value of s if it is won or lost in distance plies, otherwise 0.
+    // Other threads write to values at the same time; a byte is written
+    // atomically, and positions decided in this pass are ignored, so the
+    // result does not depend on the order in which positions are visited.
+    private byte decide(BitboardState s, long[] moves, byte[] values, int distance) {
+        int n = s.generateMoves(moves);
+        if (n == 0) {
+            return distance == 0 ? (byte) -1 : 0;
+        }
+        if (distance == 0) {
+            return 0;
+        }
+        boolean allWon = true;
+        int pieces = Long.bitCount(s.getWhiteMen() | s.getWhiteKings() | s.getBlackMen() | s.getBlackKings());
+        int kings = Long.bitCount(s.getWhiteKings() | s.getBlackKings());
+        for (int i = 0; i < n; i++) {
+            s.doMove(moves[i]);
+            int v;  // value for the opponent; 0 if a draw or not known yet
+            if (BitboardState.moveCaptures(moves[i]) != 0
+                    || Long.bitCount(s.getWhiteKings() | s.getBlackKings()) != kings) {
+                v = probeSmaller(s, pieces);
+            } else {
+                v = values[EndgameTablebase.index(s.getWhiteMen(), s.getWhiteKings(),
+                        s.getBlackMen(), s.getBlackKings(), s.isWhiteToMove())];
+                if (Math.abs(v) > distance) {
+                    v = 0;  // decided in this pass
+                }
+            }
+            s.undoMove(moves[i]);
+            if (v < 0) {
+                return (byte) (distance + 1);
+            }
+            allWon &= v > 0;
+        }
+        return allWon ? (byte) -(distance + 1) : 0;
+    }
+
+    // value of a position after a capture or promotion, for the player to move
+    private int probeSmaller(BitboardState s, int pieces) {
+        long own = s.isWhiteToMove() ? s.getWhiteMen() | s.getWhiteKings() : s.getBlackMen() | s.getBlackKings();
+        if (own == 0) {
+            return -1;  // all pieces were captured
+        }
+        int v = smaller.probe(s);
+        if (v == EndgameTablebase.NOT_FOUND) {
+            throw new IllegalStateException("no database for " + s.toFEN());
+        }
+        return v;
+    }
+}
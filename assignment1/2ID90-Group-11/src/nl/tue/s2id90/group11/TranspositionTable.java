@@ -0,0 +1,147 @@
+package nl.tue.s2id90.group11;
+
+import java.util.Arrays;
+import nl.tue.s2id90.draughts.BitboardState;
+
+/**
+ * A fixed-size transposition table, indexed by the Zobrist key of a state.
+ * All memory is allocated once; each slot holds one entry of two longs:
+ * the key xor-ed with the data, and the data itself (score, depth, bound type,
+ * best move and age). Storing the key xor-ed with the data makes it possible
+ * to detect an entry whose two halves do not belong together, so the table
+ * can be shared by several search threads without locking.
+ * @author dennis
+ */
+public class TranspositionTable {
+    // Bound types, the score is exact, a lower bound or an upper bound
+    // of the real score (white maximizes).
+    final static int EXACT = 1;
+    final static int LOWER = 2;
+    final static int UPPER = 3;
+
+    /** result of probe() when the state is not in the table. **/
+    final static long MISS = 0;
+
+    /** Policies that decide whether a new entry replaces an existing entry. **/
+    public enum ReplacementPolicy {
+        /** the new entry always replaces the old one. **/
+        ALWAYS,
+        /** keep the old entry if it was searched deeper. **/
+        DEPTH,
+        /** like DEPTH, but entries of an earlier getMove call are always replaced. **/
+        DEPTH_AND_AGE
+    }
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    private final ReplacementPolicy policy;
+    private int age = 0;
+
+    /**
+     * @param log2Size the table has 2^log2Size entries of 16 bytes
+     * @param policy replacement policy
+     */
+    public TranspositionTable(int log2Size, ReplacementPolicy policy) {
+        if (log2Size < 1 || log2Size > 30) {
+            throw new IllegalArgumentException("log2Size: " + log2Size);
+        }
+        keys = new long[1 << log2Size];
+        data = new long[1 << log2Size];
+        mask = (1 << log2Size) - 1;
+        this.policy = policy;
+    }
+
+    /**
+     * starts a new search; entries of older searches become candidates for
+     * replacement under ReplacementPolicy.DEPTH_AND_AGE.
+     */
+    void newSearch() {
+        age = (age + 1) & 0xFF;
+    }
+
+    /** removes all entries. **/
+    void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    /**
+     * @param key Zobrist key of a state
+     * @return entry data for key, or MISS
+     */
+    long probe(long key) {
+        int i = (int) key & mask;
+        long d = data[i];
+        if (d != MISS && (keys[i] ^ d) == key) {
+            return d;
+        }
+        return MISS;
+    }
+
+    /**
+     * stores an entry for key, unless the replacement policy keeps the old one.
+     * @param key Zobrist key of the state
+     * @param depth remaining search depth of the score
+     * @param bound EXACT, LOWER or UPPER
+     * @param score the score
+     * @param move best move, see encodeMove(), or 0
+     */
+    void store(long key, int depth, int bound, int score, int move) {
+        int i = (int) key & mask;
+        long old = data[i];
+        if (old != MISS && (keys[i] ^ old) != key) {
+            switch (policy) {
+                case DEPTH:
+                    if (depth(old) > depth) return;
+                    break;
+                case DEPTH_AND_AGE:
+                    if (age(old) == age && depth(old) > depth) return;
+                    break;
+            }
+        }
+        long d = (score & 0xFFFFFFFFL)
+                | ((long) (depth & 0xFF) << 32)
+                | ((long) bound << 40)
+                | ((long) (move & 0xFFF) << 42)
+                | ((long) age << 54);
+        data[i] = d;
+        keys[i] = key ^ d;
+    }
+
+    static int score(long entry) {
+        return (int) entry;
+    }
+
+    static int depth(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    static int bound(long entry) {
+        return (int) (entry >>> 40) & 0x3;
+    }
+
+    static int move(long entry) {
+        return (int) (entry >>> 42) & 0xFFF;
+    }
+
+    private static int age(long entry) {
+        return (int) (entry >>> 54) & 0xFF;
+    }
+
+    /**
+     * @param m packed move, or 0 for no move
+     * @return 12 bit code of a move: its begin and end field, or 0 for no move.
+     */
+    static int encodeMove(long m) {
+        if (m == 0) {
+            return 0;   // 0 is not a legal move: it goes from square 0 to square 0 without captures
+        }
+        return (BitboardState.moveFrom(m) + 1) | ((BitboardState.moveTo(m) + 1) << 6);
+    }
+
+    /** @return whether or not packed move m has the given 12 bit code **/
+    static boolean matches(long m, int move) {
+        return move != 0 && encodeMove(m) == move;
+    }
+}
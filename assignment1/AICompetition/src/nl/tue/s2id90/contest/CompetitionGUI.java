@@ -8,19 +8,15 @@ import java.awt.Font;
 import java.awt.Image;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.File;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 import javax.swing.BoxLayout;
 import javax.swing.GroupLayout;
 import javax.swing.ImageIcon;
@@ -36,6 +32,7 @@ import javax.swing.JTable;
 import javax.swing.LayoutStyle;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 import javax.swing.WindowConstants;
 import javax.swing.border.BevelBorder;
 import javax.swing.border.SoftBevelBorder;
@@ -43,11 +40,6 @@ import javax.swing.event.TableModelListener;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableModel;
 import net.xeoh.plugins.base.Plugin;
-import net.xeoh.plugins.base.PluginManager;
-import net.xeoh.plugins.base.impl.PluginManagerFactory;
-import net.xeoh.plugins.base.options.addpluginsfrom.OptionReportAfter;
-import net.xeoh.plugins.base.util.PluginManagerUtil;
-import net.xeoh.plugins.base.util.uri.ClassURI;
 import nl.tue.s2id90.contest.util.Identity;
 import nl.tue.s2id90.contest.util.SearchTask;
 import nl.tue.s2id90.contest.util.TimedSearchTask;
@@ -55,6 +47,7 @@ import nl.tue.s2id90.game.Game;
 import nl.tue.s2id90.game.Game.Result;
 import nl.tue.s2id90.game.GameState;
 import nl.tue.s2id90.game.Player;
+import nl.tue.s2id90.game.SearchStatistics;
 import nl.tue.win.util.Timer;
 
 /**
@@ -449,11 +442,23 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
         fillPlayerLabel(game.second, blackLabel);
         
         // start the game
-        continueGame(game, gs);
+        continueGame(game, gs, null);
     }
         
     SearchTask currentSearchTask=null;
-    private void continueGame(final Game game, final S gs) {
+
+    /**
+     * lets the next player move in state gs.
+     * @param game current game
+     * @param gs current game state
+     * @param lastMove the move that led to gs, null at the start of the game
+     */
+    private void continueGame(final Game game, final S gs, final M lastMove) {
+        if (lastMove != null && game != null) {
+            // tell both players which move was played, e.g. for pondering
+            typed(game.first).movePlayed(lastMove, GameState.copy(gs, null));
+            typed(game.second).movePlayed(lastMove, GameState.copy(gs, null));
+        }
         if ((currentGame==null) || gs.isEndState()) {
             finishGame(game,gs);
         } else {
@@ -472,13 +477,23 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
         }
     }
     
+    // a Game has raw players; those of this competition play moves M in states S
+    @SuppressWarnings("unchecked")
+    private Player<M, S> typed(Player<?, ?> p) {
+        return (Player<M, S>) p;
+    }
+
     private void finishGame(final Game game, final S gs) {
         currentGame = null;
+        if (game != null) {
+            game.first.gameFinished();
+            game.second.gameFinished();
+        }
         updateGUI(); updateGUI(game,gs);
-        // for now, give a random result
-        Result[] values = Result.values();
-        int pick = new Random().nextInt(values.length - 1);
-        if (game!=null) game.setResult(Result.values()[pick]);
+        // the player to move in an end state has lost; a stopped game has no result
+        if (game!=null && gs.isEndState()) {
+            game.setResult(gs.isWhiteToMove() ? Result.BLACK_WINS : Result.WHITE_WINS);
+        }
         gamesTable.setModel(gamesTable.getModel()); // redraw ????
         updateRanking();
         notifyCompetitionListeners(game,false); // notify of end of game
@@ -488,36 +503,56 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
         SearchTask<M, Long, S> searchTask;
         final Timer timer = new Timer();
         final int maxTime = timeSlider.getValue();
+        final Player<?, ?> player = currentPlayer;  // for the statistics listener
         searchTask = new TimedSearchTask<M, Long, S>(currentPlayer, gs, maxTime) {
             private long MIN_DELAY=1500; // minimum time for a move 1500 milliseconds
             @Override
             public void done(M m) {
                 timer.stop();
+                player.setStatisticsListener(null);
                 
-                // sleep at least MIN DELAY ms before doing the move on the board
+                // wait until at least MIN DELAY ms have passed before doing the
+                // move on the board, without blocking the event dispatch thread
                 long dt = timer.elapsedTimeInMilliSeconds();
                 System.err.println("dt = " + dt + "/" + 1000*maxTime+"\n\n");
                 if (dt <MIN_DELAY) {
-                    sleep(MIN_DELAY-dt);
+                    javax.swing.Timer delay = new javax.swing.Timer((int) (MIN_DELAY-dt), e -> doMove(m));
+                    delay.setRepeats(false);
+                    delay.start();
+                } else {
+                    doMove(m);
                 }
-                
+            }
+
+            private void doMove(M m) {
                 // apply move in the current game state
                 if (gs.getMoves().contains(m)) {
                     //gs.doMove(m);
+                    SearchStatistics statistics = currentPlayer.getStatistics();
+                    if (statistics != null) {
+                        notifyCompetitionListeners(currentPlayer, statistics);
+                    }
                     notifyCompetitionListeners(m); // notify of next AI move
                     //gameGUI.animateMove(m);
                     // recurse
-                    continueGame(game,gs); 
+                    continueGame(game,gs,m); 
                 } else {
                     String message=("<html><center>"+(gs.isWhiteToMove()?"White":"Black") + " player ("+currentPlayer.getName()+")<br> tries an illegal move:<br>" + m);
                     LOG.log(Level.SEVERE, message);
                     JOptionPane.showMessageDialog(rootPane, message, "illegal move", JOptionPane.ERROR_MESSAGE);
+                    // an illegal move loses the game
+                    game.setResult(gs.isWhiteToMove() ? Result.BLACK_WINS : Result.WHITE_WINS);
                     finishGame(game,gs); 
                 }
 
             }
         };
         timer.start();
+        // the reports of the search thread arrive on the event dispatch
+        // thread before done(), which is also posted by the search thread
+        Consumer<SearchStatistics> progress = statistics -> SwingUtilities.invokeLater(
+                () -> notifySearchProgress(player, statistics));
+        player.setStatisticsListener(progress);
         searchTask.execute();
         return searchTask;
     }
@@ -662,9 +697,6 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
     
    
     
-    private static void sleep(long dt) {
-        try { TimeUnit.MILLISECONDS.sleep(dt); } catch (InterruptedException ex) { }
-    }
     //</editor-fold>
 
     private void createSchedule() {
@@ -695,6 +727,16 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
             l.onAIMove(m);
         }
     }
+    private void notifyCompetitionListeners(Player<?, ?> p, SearchStatistics statistics) {
+        for(CompetitionListener<M> l: listeners) {
+            l.onStatistics(p, statistics);
+        }
+    }
+    private void notifySearchProgress(Player<?, ?> p, SearchStatistics statistics) {
+        for(CompetitionListener<M> l: listeners) {
+            l.onSearchProgress(p, statistics);
+        }
+    }
     private void notifyCompetitionListeners(Game g, boolean start) {
         for(CompetitionListener<M> l : listeners) {
             if (start) {
@@ -708,7 +750,7 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
 
     @Override
     public void onHumanMove(M m) {
-        continueGame(currentGame,gameGUI.getCurrentGameState());
+        continueGame(currentGame,gameGUI.getCurrentGameState(),m);
     }
 
     @Override
@@ -721,12 +763,6 @@ public class CompetitionGUI<Competitor extends Player<M,S>, P extends PlayerProv
     }
 
     private List<P> getPlugins(String[] pluginFolders) {
-        PluginManager pm = PluginManagerFactory.createPluginManager();
-        pm.addPluginsFrom(ClassURI.CLASSPATH, new OptionReportAfter());
-        Arrays.asList(pluginFolders).stream().forEach(folder -> {
-            pm.addPluginsFrom(new File(folder).toURI(), new OptionReportAfter());
-        });
-        PluginManagerUtil pmu= new PluginManagerUtil(pm);
-        return pmu.getPlugins(Plugin.class).stream().filter(selector).map(p->(P)p).collect(Collectors.toList());
+        return PluginLoader.getPlugins(pluginFolders, selector);
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,8 @@
 package nl.tue.s2id90.contest;
 
 import nl.tue.s2id90.game.Game;
+import nl.tue.s2id90.game.Player;
+import nl.tue.s2id90.game.SearchStatistics;
 
 /**
  *
@@ -10,4 +12,21 @@ public interface CompetitionListener<Move> {
     void onStartGame(Game g);
     void onStopGame(Game g);
     void onAIMove(Move m);
+
+    /** called just before onAIMove() when the player reports statistics
+     * of its search for the move. This implementation does nothing.
+     * @param p the player that made the move
+     * @param statistics statistics of the search
+     */
+    default void onStatistics(Player<?, ?> p, SearchStatistics statistics) {
+    }
+
+    /** called after every iteration of the search of a computer player, see
+     * Player#setStatisticsListener(), with the statistics of the search so
+     * far. This implementation does nothing.
+     * @param p the player that is searching
+     * @param statistics statistics of the search so far
+     */
+    default void onSearchProgress(Player<?, ?> p, SearchStatistics statistics) {
+    }
 }
@@ -0,0 +1,38 @@
+package nl.tue.s2id90.contest;
+
+import nl.tue.s2id90.game.GameState;
+
+/**
+ * Text forms of the states and moves of a game, as they are sent over the
+ * engine protocol of ExternalPlayer. A text must not contain line breaks.
+ * @author huub
+ * @param <M> Move
+ * @param <S> GameState
+ */
+public interface EngineCodec<M, S extends GameState<M>> {
+    /**
+     * @param s state
+     * @return text form of s
+     */
+    String formatPosition(S s);
+
+    /**
+     * @param text text form of a state
+     * @return the state
+     * @throws IllegalArgumentException if text is not a state
+     */
+    S parsePosition(String text);
+
+    /**
+     * @param m move
+     * @return text form of m
+     */
+    String formatMove(M m);
+
+    /**
+     * @param text text form of a move
+     * @param s state in which the move is played
+     * @return the legal move of s with this text form, or null if there is none
+     */
+    M parseMove(String text, S s);
+}
@@ -0,0 +1,232 @@
+package nl.tue.s2id90.contest;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.ImageIcon;
+import nl.tue.s2id90.game.GameState;
+import nl.tue.s2id90.game.Player;
+import nl.tue.s2id90.game.TimeControl;
+
+/**
+ * A player that runs in another process, e.g. in its own JVM with its own
+ * heap and garbage collector settings, and that is driven over a line based
+ * protocol on the standard input and output of that process or on a socket.
+ * <pre>
+ * engine:  id name &lt;name&gt;          first line, once
+ * player:  position &lt;state&gt;        the state of the next go
+ * player:  go &lt;soft&gt; &lt;hard&gt;        search; deadlines in ms from now
+ * player:  go infinite              search until stop
+ * engine:  info value &lt;n&gt;          optional, the value of the move
+ * engine:  bestmove &lt;move&gt;|none    the result of a go
+ * player:  stop                     return bestmove as soon as possible
+ * player:  newgame                  the game has finished
+ * player:  quit                     the engine exits
+ * </pre>
+ * States and moves are written by an EngineCodec. The deadlines of go are
+ * those of the TimeControl of the move (see Player#setTimeControl), relative
+ * to the moment they are sent, since the clocks of the processes differ.
+ * Stop is only sent while a go has no bestmove yet, but it can cross a
+ * bestmove that is on its way, so an engine ignores stop when it is not
+ * searching. An engine also ignores lines that it does not know.
+ * @author huub
+ * @param <M> Move
+ * @param <S> GameState
+ */
+public class ExternalPlayer<M, S extends GameState<M>> implements Player<M, S>, Closeable {
+    private static final Logger LOG = Logger.getLogger(ExternalPlayer.class.getName());
+
+    private final EngineCodec<M, S> codec;
+    private final Process process;      // null for a socket
+    private final Socket socket;        // null for a process
+    private final BufferedReader in;
+    private final PrintWriter out;
+    private final String name;
+    private volatile TimeControl timeControl = null;   // of the next getMove()
+    private volatile Integer value = null;
+    private boolean searching = false;  // a go has no bestmove yet, guarded by out
+
+    private ExternalPlayer(EngineCodec<M, S> codec, Process process, Socket socket,
+                           InputStream in, OutputStream out) throws IOException {
+        this.codec = codec;
+        this.process = process;
+        this.socket = socket;
+        this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.out = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        String line = this.in.readLine();
+        if (line == null || !line.startsWith("id name ")) {
+            close();
+            throw new IOException("engine did not identify itself: " + line);
+        }
+        name = line.substring("id name ".length()).trim();
+    }
+
+    /**
+     * starts an engine process; its error output goes to the error output of
+     * this process.
+     * @param <M> Move
+     * @param <S> GameState
+     * @param codec text forms of states and moves
+     * @param command command line of the engine
+     * @return player that drives the engine
+     * @throws IOException if the engine can not be started or does not identify itself
+     */
+    public static <M, S extends GameState<M>> ExternalPlayer<M, S> start(EngineCodec<M, S> codec,
+            List<String> command) throws IOException {
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        return new ExternalPlayer<>(codec, process, null, process.getInputStream(), process.getOutputStream());
+    }
+
+    /**
+     * connects to an engine that listens on a socket.
+     * @param <M> Move
+     * @param <S> GameState
+     * @param codec text forms of states and moves
+     * @param host host of the engine
+     * @param port port of the engine
+     * @return player that drives the engine
+     * @throws IOException if there is no connection or the engine does not identify itself
+     */
+    public static <M, S extends GameState<M>> ExternalPlayer<M, S> connect(EngineCodec<M, S> codec,
+            String host, int port) throws IOException {
+        Socket socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        return new ExternalPlayer<>(codec, null, socket, socket.getInputStream(), socket.getOutputStream());
+    }
+
+    private void send(String line) {
+        synchronized (out) {
+            out.println(line);
+            out.flush();
+        }
+    }
+
+    /**
+     * sends the state to the engine and waits for its move.
+     * @param s state
+     * @return the move of the engine, or null if the engine returned no legal
+     * move or the connection was lost
+     */
+    @Override
+    public M getMove(S s) {
+        value = null;
+        send("position " + codec.formatPosition(s));
+        // like the deadlines of a player in this process, they hold for one move only
+        TimeControl tc = timeControl;
+        timeControl = null;
+        synchronized (out) {
+            if (tc == null) {
+                send("go infinite");
+            } else {
+                long now = System.nanoTime();
+                send("go " + Math.max(0, TimeUnit.NANOSECONDS.toMillis(tc.getSoftDeadline() - now))
+                        + " " + Math.max(0, TimeUnit.NANOSECONDS.toMillis(tc.getHardDeadline() - now)));
+            }
+            searching = true;
+        }
+        try {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                if (line.startsWith("bestmove ")) {
+                    synchronized (out) {
+                        searching = false;
+                    }
+                    String move = line.substring("bestmove ".length()).trim();
+                    M m = move.equals("none") ? null : codec.parseMove(move, s);
+                    if (m == null) {
+                        LOG.log(Level.WARNING, "{0} returned no legal move: {1}", new Object[]{name, move});
+                    }
+                    return m;
+                } else if (line.startsWith("info value ")) {
+                    // a bad info line is skipped; the bestmove of this go must still be read
+                    try {
+                        value = Integer.valueOf(line.substring("info value ".length()).trim());
+                    } catch (NumberFormatException ex) {
+                        LOG.log(Level.WARNING, "{0} sent a bad value: {1}", new Object[]{name, line});
+                    }
+                } else {
+                    LOG.log(Level.FINE, "{0}: {1}", new Object[]{name, line});
+                }
+            }
+            LOG.log(Level.SEVERE, "{0} closed the connection", name);
+        } catch (IOException ex) {
+            LOG.log(Level.SEVERE, "connection with " + name + " failed", ex);
+        }
+        synchronized (out) {
+            searching = false;
+        }
+        return null;
+    }
+
+    @Override
+    public void setTimeControl(TimeControl timeControl) {
+        this.timeControl = timeControl;
+    }
+
+    @Override
+    public Integer getValue() {
+        return value;
+    }
+
+    /** sends stop if the engine is searching, otherwise does nothing. **/
+    @Override
+    public void stop() {
+        synchronized (out) {
+            if (searching) {
+                send("stop");
+            }
+        }
+    }
+
+    @Override
+    public void gameFinished() {
+        send("newgame");
+    }
+
+    @Override
+    public boolean isHuman() {
+        return false;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public ImageIcon getIcon() {
+        return null;
+    }
+
+    /**
+     * asks the engine to quit and closes the connection; an engine process
+     * that has not exited after a second is killed.
+     */
+    @Override
+    public void close() {
+        send("quit");
+        try {
+            if (socket != null) {
+                socket.close();
+            }
+            if (process != null && !process.waitFor(1, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (IOException ex) {
+            LOG.log(Level.FINE, "closing the connection failed", ex);
+        } catch (InterruptedException ex) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -34,4 +34,25 @@ public class PlayerProvider<P extends Player> implements Provider {
     public List<P> getPlayers() {
         return null;
     }
+
+    /**
+     * creates new instances of the players of getPlayers(), in the same
+     * order and with the same settings, e.g. for games of a tournament that
+     * are played at the same time. By default a new instance of this plugin
+     * is created with its public no-argument constructor, as the plugin
+     * loader does, so its players get the settings of the plugin again.
+     * @return new players, or null if they can not be created
+     */
+    public List<P> newPlayers() {
+        try {
+            // an instance of the class of this provider provides players of type P
+            @SuppressWarnings("unchecked")
+            PlayerProvider<P> provider = getClass().getConstructor().newInstance();
+            List<P> players = provider.getPlayers();
+            List<P> current = getPlayers();
+            return players != null && current != null && players.size() == current.size() ? players : null;
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            return null;
+        }
+    }
 }
\ No newline at end of file
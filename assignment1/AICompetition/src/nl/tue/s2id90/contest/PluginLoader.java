@@ -0,0 +1,38 @@
+package nl.tue.s2id90.contest;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import net.xeoh.plugins.base.Plugin;
+import net.xeoh.plugins.base.PluginManager;
+import net.xeoh.plugins.base.impl.PluginManagerFactory;
+import net.xeoh.plugins.base.options.addpluginsfrom.OptionReportAfter;
+import net.xeoh.plugins.base.util.PluginManagerUtil;
+import net.xeoh.plugins.base.util.uri.ClassURI;
+
+/**
+ * Loads the plugins on the class path and in a number of plugin folders.
+ * @author huub
+ */
+public class PluginLoader {
+
+    /**
+     * @param <P> plugin type
+     * @param pluginFolders folders that contain plugin jars
+     * @param selector predicate that only results in true if the argument plugin is a suitable plugin,
+     * which must be a P
+     * @return the suitable plugins
+     */
+    @SuppressWarnings("unchecked")  // the selector only accepts plugins of type P
+    public static <P> List<P> getPlugins(String[] pluginFolders, Predicate<Plugin> selector) {
+        PluginManager pm = PluginManagerFactory.createPluginManager();
+        pm.addPluginsFrom(ClassURI.CLASSPATH, new OptionReportAfter());
+        Arrays.asList(pluginFolders).stream().forEach(folder -> {
+            pm.addPluginsFrom(new File(folder).toURI(), new OptionReportAfter());
+        });
+        PluginManagerUtil pmu= new PluginManagerUtil(pm);
+        return pmu.getPlugins(Plugin.class).stream().filter(selector).map(p->(P)p).collect(Collectors.toList());
+    }
+}
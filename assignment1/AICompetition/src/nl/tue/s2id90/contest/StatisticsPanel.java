@@ -0,0 +1,79 @@
+package nl.tue.s2id90.contest;
+
+import java.util.Locale;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.table.DefaultTableModel;
+import nl.tue.s2id90.game.Player;
+import nl.tue.s2id90.game.SearchStatistics;
+
+/**
+ * A tab that shows the search statistics of every computer move of the
+ * current game, one row per move. While a computer player searches, the last
+ * row shows its search so far. Must be used on the event dispatch thread.
+ * @author huub
+ */
+public class StatisticsPanel extends JScrollPane {
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMNS = {"move", "player", "depth", "nodes", "qnodes",
+        "ms", "nodes/s", "ebf", "1st cutoff", "TT hits", "score"};
+
+    private final DefaultTableModel model = new DefaultTableModel(COLUMNS, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+    private boolean searching = false;  // whether the last row is of a running search
+
+    public StatisticsPanel() {
+        setViewportView(new JTable(model));
+        setName("statistics"); // name as used in tabbedPane
+    }
+
+    /** removes all rows. **/
+    public void clear() {
+        model.setRowCount(0);
+        searching = false;
+    }
+
+    /**
+     * adds a row for the next move, in place of the row of its search.
+     * @param p player that made the move
+     * @param s statistics of its search
+     */
+    public void add(Player<?, ?> p, SearchStatistics s) {
+        setLastRow(p, s);
+        searching = false;
+    }
+
+    /**
+     * shows the statistics of a running search in the last row.
+     * @param p player that is searching
+     * @param s statistics of its search so far
+     */
+    public void progress(Player<?, ?> p, SearchStatistics s) {
+        setLastRow(p, s);
+        searching = true;
+    }
+
+    // adds a row, or replaces the row of the running search
+    private void setLastRow(Player<?, ?> p, SearchStatistics s) {
+        if (searching) {
+            model.removeRow(model.getRowCount() - 1);
+        }
+        model.addRow(new Object[]{
+            model.getRowCount() + 1,
+            p.getName(),
+            s.getDepth(),
+            s.getNodes(),
+            s.getQuiescenceNodes(),
+            s.getTimeNanos() / 1000000,
+            Math.round(s.getNodesPerSecond()),
+            String.format(Locale.ROOT, "%.2f", s.getEffectiveBranchingFactor()),
+            String.format(Locale.ROOT, "%.0f%%", 100 * s.getFirstMoveCutoffRate()),
+            String.format(Locale.ROOT, "%.0f%%", 100 * s.getTTHitRate()),
+            s.getScore()
+        });
+    }
+}
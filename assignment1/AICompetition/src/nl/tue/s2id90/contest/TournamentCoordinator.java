@@ -0,0 +1,217 @@
+package nl.tue.s2id90.contest;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import nl.tue.s2id90.game.Game;
+import nl.tue.s2id90.game.Game.Result;
+
+/**
+ * Hands out the games of a schedule to TournamentWorkers, which may run in
+ * other processes or on other machines, and collects their results. Every
+ * connection of a worker plays one game at a time:
+ * <pre>
+ * coordinator:  play &lt;id&gt;\t&lt;white&gt;\t&lt;black&gt;   play this game
+ * worker:       result &lt;id&gt; &lt;result&gt;         e.g. result 12 WHITE_WINS
+ * coordinator:  quit                          all games have been played
+ * </pre>
+ * Players are identified by name, so a worker must know the same players.
+ * The game of a connection that is closed, fails or exceeds the game
+ * timeout is handed to the next free connection.
+ * <p>
+ * With a progress file every result is appended to it as a line
+ * "white\tblack\tresult". A coordinator that is started again with that
+ * file skips the games in it, so an interrupted tournament resumes where
+ * it stopped, even though the new schedule is in another order.
+ * @author huub
+ */
+public class TournamentCoordinator {
+    private static final Logger LOG = Logger.getLogger(TournamentCoordinator.class.getName());
+
+    private final List<Game> schedule;
+    /** indices in schedule of the games that are not being played and have no result. **/
+    private final BlockingDeque<Integer> pending = new LinkedBlockingDeque<>();
+    private final PrintStream progress;
+    private int remaining;      // games without a result, guarded by this
+    private int connections = 0; // open connections of workers, guarded by this
+    private int gameTimeout = 0;
+
+    /**
+     * @param schedule games to play
+     * @param progressFile file with the results so far, null for none
+     * @throws IOException if the progress file can not be read or written
+     */
+    public TournamentCoordinator(List<Game> schedule, File progressFile) throws IOException {
+        this.schedule = schedule;
+        if (progressFile != null && progressFile.exists()) {
+            resume(progressFile);
+        }
+        for (int i = 0; i < schedule.size(); i++) {
+            if (schedule.get(i).getResult() == Result.UNKNOWN) {
+                pending.add(i);
+            }
+        }
+        remaining = pending.size();
+        progress = progressFile == null ? null
+                : new PrintStream(new FileOutputStream(progressFile, true), true, "UTF-8");
+    }
+
+    // sets the results of the progress file in the schedule
+    private void resume(File progressFile) throws IOException {
+        int resumed = 0;
+        for (String line : Files.readAllLines(progressFile.toPath(), StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\t");
+            if (fields.length != 3) {
+                continue;   // e.g. a line that was cut off by a crash
+            }
+            for (Game game : schedule) {
+                if (game.getResult() == Result.UNKNOWN && game.first.getName().equals(fields[0])
+                        && game.second.getName().equals(fields[1])) {
+                    game.setResult(Result.valueOf(fields[2]));
+                    resumed++;
+                    break;
+                }
+            }
+        }
+        LOG.log(Level.INFO, "{0} of {1} games were already played", new Object[]{resumed, schedule.size()});
+    }
+
+    /**
+     * @param seconds time after which the game of a worker is handed to
+     * another worker, 0 for no limit
+     */
+    public void setGameTimeout(int seconds) {
+        gameTimeout = (int) TimeUnit.SECONDS.toMillis(seconds);
+    }
+
+    /**
+     * accepts workers on port until all games of the schedule have a result
+     * and all workers have been told to quit.
+     * @param port port to listen on
+     * @throws IOException if the port can not be opened
+     */
+    public void play(int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port)) {
+            LOG.log(Level.INFO, "waiting for workers on port {0}", String.valueOf(server.getLocalPort()));
+            Thread acceptor = new Thread(() -> accept(server), "coordinator-accept");
+            acceptor.setDaemon(true);
+            acceptor.start();
+            synchronized (this) {
+                while (remaining > 0 || connections > 0) {
+                    wait();
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (progress != null) {
+                progress.close();
+            }
+        }
+    }
+
+    private void accept(ServerSocket server) {
+        try {
+            while (true) {
+                Socket socket = server.accept();
+                synchronized (this) {
+                    connections++;
+                }
+                Thread t = new Thread(() -> serve(socket), "coordinator-" + socket.getRemoteSocketAddress());
+                t.setDaemon(true);
+                t.start();
+            }
+        } catch (SocketException ex) {
+            // the server socket was closed, all games have been played
+        } catch (IOException ex) {
+            LOG.log(Level.SEVERE, "accepting workers failed", ex);
+        }
+    }
+
+    // hands out games to one connection of a worker
+    private void serve(Socket socket) {
+        String worker = String.valueOf(socket.getRemoteSocketAddress());
+        Integer id = null;
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+            s.setTcpNoDelay(true);
+            s.setSoTimeout(gameTimeout);
+            while ((id = nextGame()) != null) {
+                Game game = schedule.get(id);
+                out.println("play " + id + "\t" + game.first.getName() + "\t" + game.second.getName());
+                out.flush();
+                String line = in.readLine();
+                if (line == null) {
+                    throw new EOFException("connection closed");
+                }
+                String[] words = line.trim().split("\\s+");
+                if (words.length != 3 || !words[0].equals("result") || Integer.parseInt(words[1]) != id) {
+                    throw new IOException("unexpected answer: " + line);
+                }
+                finish(id, Result.valueOf(words[2]));
+                id = null;
+            }
+            out.println("quit");
+            out.flush();
+        } catch (IOException | IllegalArgumentException ex) {
+            LOG.log(Level.WARNING, "worker " + worker + " failed", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (id != null) {
+                LOG.log(Level.INFO, "{0} is handed to another worker", schedule.get(id));
+                pending.addFirst(id);
+            }
+            synchronized (this) {
+                connections--;
+                notifyAll();
+            }
+        }
+    }
+
+    // the next game to play, or null if all games have a result
+    private Integer nextGame() throws InterruptedException {
+        while (true) {
+            Integer id = pending.poll(1, TimeUnit.SECONDS);
+            if (id != null) {
+                return id;
+            }
+            synchronized (this) {
+                if (remaining == 0) {
+                    return null;
+                }
+            }
+        }
+    }
+
+    private synchronized void finish(int id, Result result) {
+        Game game = schedule.get(id);
+        synchronized (game) {
+            game.setResult(result);
+        }
+        if (progress != null) {
+            progress.println(game.first.getName() + "\t" + game.second.getName() + "\t" + result);
+        }
+        LOG.log(Level.INFO, "{0}: {1} ({2} to go)", new Object[]{game, result, remaining - 1});
+        remaining--;
+        notifyAll();
+    }
+}
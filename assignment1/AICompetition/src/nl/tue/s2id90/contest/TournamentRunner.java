@@ -0,0 +1,430 @@
+package nl.tue.s2id90.contest;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.ImageIcon;
+import nl.tue.s2id90.contest.util.SearchTask;
+import nl.tue.s2id90.game.Game;
+import nl.tue.s2id90.game.Game.Result;
+import nl.tue.s2id90.game.GameState;
+import nl.tue.s2id90.game.Player;
+import nl.tue.s2id90.game.SearchStatistics;
+import nl.tue.s2id90.game.TimeControl;
+
+/**
+ * Plays the games of a schedule without a GUI, several games at the same time.
+ * Every game is played on its own game state by new instances of its players,
+ * made by the player factory (see setPlayerFactory); the games of a player
+ * that the factory can not copy share one instance, which gets gameFinished()
+ * when the last game that uses it has finished. A player that
+ * has no moves left loses; a game that reaches the move limit is a draw; a
+ * player that returns an illegal move (or no move) loses. The state that a
+ * player gets in getMove() and movePlayed() is its own copy, which the
+ * runner overwrites for the next call if the state is a CopyableState.
+ * @author huub
+ * @param <M> Move
+ * @param <S> GameState
+ */
+public class TournamentRunner<M, S extends GameState<M>> {
+    private static final Logger LOG = Logger.getLogger(TournamentRunner.class.getName());
+
+    private final Supplier<S> initialState;
+    private final int threads;
+    private final int timeLimitInSeconds;
+    private final int maxMoves;
+    private PrintStream statisticsOut = null;
+    private boolean statisticsJSON;
+    private Function<Player<M, S>, Player<M, S>> playerFactory = p -> null;
+    /** number of running games per shared player, guarded by itself. **/
+    private final Map<Player<M, S>, Integer> sharedGames = new IdentityHashMap<>();
+
+    /** calls stop() on players that reach their time limit. **/
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "tournament-timer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * @param initialState creates the state in which every game starts
+     * @param threads number of games that are played at the same time
+     * @param timeLimitInSeconds thinking time per move
+     * @param maxMoves number of moves (of both players) after which a game is a draw
+     */
+    public TournamentRunner(Supplier<S> initialState, int threads, int timeLimitInSeconds, int maxMoves) {
+        this.initialState = initialState;
+        this.threads = threads;
+        this.timeLimitInSeconds = timeLimitInSeconds;
+        this.maxMoves = maxMoves;
+    }
+
+    /**
+     * sets the factory that makes the players of a game: for a player of the
+     * schedule it returns a new instance with the same settings, e.g. from
+     * the plugin of the player (see PlayerProvider#newPlayers()), or null if
+     * it can not. By default there is no factory and every player plays all
+     * its games with one shared instance.
+     * @param playerFactory factory of the players of a game
+     */
+    public void setPlayerFactory(Function<Player<M, S>, Player<M, S>> playerFactory) {
+        this.playerFactory = playerFactory;
+    }
+
+    /**
+     * writes the search statistics of every move to out, for players that
+     * keep them (see Player#getStatistics()): as CSV with a header line, or
+     * as one JSON object per line.
+     * @param out output, or null for no statistics
+     * @param json whether to write JSON instead of CSV
+     */
+    public void setStatisticsOutput(PrintStream out, boolean json) {
+        statisticsOut = out;
+        statisticsJSON = json;
+    }
+
+    /**
+     * plays all games of the schedule and sets their results.
+     * @param schedule games to play
+     */
+    public void play(List<Game> schedule) {
+        if (statisticsOut != null && !statisticsJSON) {
+            statisticsOut.println("white,black,ply,player," + SearchStatistics.CSV_HEADER);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (final Game game : schedule) {
+            futures.add(pool.submit(() -> {
+                Result result = playGame(game);
+                synchronized (game) {
+                    game.setResult(result);
+                }
+                LOG.log(Level.INFO, "{0}: {1}", new Object[]{game, result});
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException | ExecutionException ex) {
+                LOG.log(Level.SEVERE, "game failed", ex);
+            }
+        }
+        pool.shutdown();
+    }
+
+    /**
+     * plays one game.
+     * @param game players of the game
+     * @return result of the game
+     */
+    public Result playGame(Game game) {
+        Player<M, S> white = newInstance(typed(game.first));
+        Player<M, S> black = newInstance(typed(game.second));
+        try {
+            S state = initialState.get();
+            S whiteCopy = null, blackCopy = null;   // the copies of the state of the players
+            for (int ply = 0; ply < maxMoves; ply++) {
+                if (state.isEndState()) {
+                    return state.isWhiteToMove() ? Result.BLACK_WINS : Result.WHITE_WINS;
+                }
+                Player<M, S> player;
+                S copy;
+                if (state.isWhiteToMove()) {
+                    player = white;
+                    copy = whiteCopy = GameState.copy(state, whiteCopy);
+                } else {
+                    player = black;
+                    copy = blackCopy = GameState.copy(state, blackCopy);
+                }
+                M m = getMove(player, copy);
+                if (m == null || !state.getMoves().contains(m)) {
+                    LOG.log(Level.SEVERE, "{0} tries an illegal move: {1}", new Object[]{player.getName(), m});
+                    return state.isWhiteToMove() ? Result.BLACK_WINS : Result.WHITE_WINS;
+                }
+                writeStatistics(game, ply, player);
+                state.doMove(m);
+                white.movePlayed(m, whiteCopy = GameState.copy(state, whiteCopy));
+                black.movePlayed(m, blackCopy = GameState.copy(state, blackCopy));
+            }
+            return Result.DRAW;
+        } finally {
+            white.gameFinished();
+            black.gameFinished();
+        }
+    }
+
+    private void writeStatistics(Game game, int ply, Player<M, S> player) {
+        SearchStatistics statistics = statisticsOut == null ? null : player.getStatistics();
+        if (statistics == null) {
+            return;
+        }
+        String line;
+        if (statisticsJSON) {
+            line = "{\"white\":" + quote(game.first.getName()) + ",\"black\":" + quote(game.second.getName())
+                    + ",\"ply\":" + ply + ",\"player\":" + quote(player.getName())
+                    + ",\"statistics\":" + statistics.toJSON() + "}";
+        } else {
+            line = csv(game.first.getName()) + "," + csv(game.second.getName()) + "," + ply + ","
+                    + csv(player.getName()) + "," + statistics.toCSV();
+        }
+        synchronized (statisticsOut) {
+            statisticsOut.println(line);
+        }
+    }
+
+    private static String quote(String s) {
+        return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    // a CSV field: quoted, with doubled quotes, if it has a comma, quote or line break
+    private static String csv(String s) {
+        return s.matches("[^,\"\r\n]*") ? s : "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+
+    // asks player for a move within its time control, and stops it when its time is up
+    private M getMove(final Player<M, S> player, S copy) {
+        if (player instanceof SharedPlayer) {
+            // the time of the move starts when this game has the shared player,
+            // not while it waits for another game to finish its move
+            return ((SharedPlayer<?, ?>) player).whileSearching(() -> timedMove(player, copy));
+        }
+        return timedMove(player, copy);
+    }
+
+    private M timedMove(final Player<M, S> player, S copy) {
+        TimeControl tc = TimeControl.forMove(1000L * timeLimitInSeconds);
+        ScheduledFuture<Long> stopper = timer.schedule(() -> {
+            long stopTime = System.nanoTime();
+            player.stop();
+            return stopTime;
+        }, timeLimitInSeconds, TimeUnit.SECONDS);
+        M m;
+        try {
+            player.setTimeControl(tc);
+            m = player.getMove(copy);
+        } catch (Exception e) {
+            LOG.log(Level.SEVERE, "exception in player " + player.getName(), e);
+            m = null;
+        }
+        if (!stopper.cancel(false)) {
+            // the time limit has passed and stop() has been called
+            try {
+                SearchTask.logStopLatency(player, stopper.get());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                LOG.log(Level.SEVERE, "stop() of " + player.getName() + " failed", ex.getCause());
+            }
+        }
+        return m;
+    }
+
+    // a Game has raw players; those of the games of this runner play moves M in states S
+    @SuppressWarnings("unchecked")
+    private Player<M, S> typed(Player<?, ?> p) {
+        return (Player<M, S>) p;
+    }
+
+    // a new instance of p made by the player factory, or p itself if that is not possible
+    private Player<M, S> newInstance(Player<M, S> p) {
+        Player<M, S> instance = null;
+        try {
+            instance = playerFactory.apply(p);
+        } catch (RuntimeException ex) {
+            LOG.log(Level.SEVERE, "the player factory failed for " + p.getName(), ex);
+        }
+        if (instance != null) {
+            return instance;
+        }
+        LOG.log(Level.WARNING, "{0} can not be instantiated, games of this player share one instance",
+                p.getName());
+        synchronized (sharedGames) {
+            sharedGames.merge(p, 1, Integer::sum);
+        }
+        return new SharedPlayer<>(p, sharedGames);
+    }
+
+    /**
+     * writes the result of every game as a line "white,black,result".
+     * @param out output
+     * @param schedule games
+     */
+    public static void printResults(PrintStream out, List<Game> schedule) {
+        out.println("white,black,result");
+        for (Game game : schedule) {
+            out.println(csv(game.first.getName()) + "," + csv(game.second.getName()) + "," + game.getResult());
+        }
+    }
+
+    /**
+     * writes a table with the wins, draws, losses and points of every player,
+     * ordered by points.
+     * @param out output
+     * @param schedule games
+     */
+    public static void printStandings(PrintStream out, List<Game> schedule) {
+        // per player: wins, draws, losses, points
+        Map<Player<?, ?>, int[]> table = new IdentityHashMap<>();
+        for (Game game : schedule) {
+            int[] w = table.computeIfAbsent(game.first, p -> new int[4]);
+            int[] b = table.computeIfAbsent(game.second, p -> new int[4]);
+            Result r = game.getResult();
+            if (r == Result.UNKNOWN) {
+                continue;
+            }
+            w[r == Result.WHITE_WINS ? 0 : r == Result.DRAW ? 1 : 2]++;
+            b[r == Result.BLACK_WINS ? 0 : r == Result.DRAW ? 1 : 2]++;
+            w[3] += r.getWhitePoints();
+            b[3] += r.getBlackPoints();
+        }
+        List<Player<?, ?>> players = new ArrayList<>(table.keySet());
+        players.sort(Comparator.comparing((Player<?, ?> p) -> -table.get(p)[3]).thenComparing(Player::getName));
+        out.printf("%-30s %4s %4s %4s %4s%n", "name", "W", "D", "L", "P");
+        for (Player<?, ?> p : players) {
+            int[] t = table.get(p);
+            out.printf("%-30s %4d %4d %4d %4d%n", p.getName(), t[0], t[1], t[2], t[3]);
+        }
+    }
+
+    /**
+     * a player that is used by more than one game; it plays one move at a
+     * time. The moves of a game are only passed on to movePlayed() of the
+     * player while no other game uses it, so a shared player ponders only
+     * when it plays one game at a time.
+     */
+    private static class SharedPlayer<M, S extends GameState<M>> implements Player<M, S> {
+        private final Player<M, S> player;
+        private final Map<Player<M, S>, Integer> sharedGames;   // see TournamentRunner#sharedGames
+        private TimeControl timeControl;
+        private Consumer<SearchStatistics> statisticsListener;
+        private SearchStatistics statistics;
+        private boolean searching = false;  // whether this game has player, guarded by this
+
+        SharedPlayer(Player<M, S> player, Map<Player<M, S>, Integer> sharedGames) {
+            this.player = player;
+            this.sharedGames = sharedGames;
+        }
+
+        // runs search while this game holds the lock of the shared player
+        <T> T whileSearching(Supplier<T> search) {
+            synchronized (player) {
+                synchronized (this) {
+                    searching = true;
+                }
+                try {
+                    return search.get();
+                } finally {
+                    synchronized (this) {
+                        searching = false;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public M getMove(S s) {
+            synchronized (player) {
+                if (timeControl != null) {
+                    player.setTimeControl(timeControl);
+                }
+                player.setStatisticsListener(statisticsListener);
+                try {
+                    M m = player.getMove(s);
+                    // read here: after the lock is released another game may use player
+                    statistics = player.getStatistics();
+                    return m;
+                } finally {
+                    player.setStatisticsListener(null);
+                }
+            }
+        }
+
+        @Override
+        public SearchStatistics getStatistics() {
+            return statistics;
+        }
+
+        @Override
+        public void setTimeControl(TimeControl timeControl) {
+            // handed to the player in getMove, once this game holds the lock
+            this.timeControl = timeControl;
+        }
+
+        /** the listener only gets the reports of the searches of this game. **/
+        @Override
+        public void setStatisticsListener(Consumer<SearchStatistics> listener) {
+            statisticsListener = listener;
+        }
+
+        @Override
+        public Integer getValue() {
+            return player.getValue();
+        }
+
+        /** stops player, unless it is searching a move of another game. **/
+        @Override
+        public void stop() {
+            synchronized (this) {
+                if (searching) {
+                    player.stop();
+                }
+            }
+        }
+
+        @Override
+        public void movePlayed(M m, S s) {
+            synchronized (sharedGames) {
+                if (sharedGames.get(player) != 1) {
+                    return;
+                }
+            }
+            synchronized (player) {
+                player.movePlayed(m, s);
+            }
+        }
+
+        /** calls gameFinished() of player if this was the last game that uses it. **/
+        @Override
+        public void gameFinished() {
+            // under the lock, so that no new game can start with player before it is finished
+            synchronized (sharedGames) {
+                if (sharedGames.merge(player, -1, Integer::sum) == 0) {
+                    sharedGames.remove(player);
+                    synchronized (player) {
+                        player.gameFinished();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean isHuman() {
+            return player.isHuman();
+        }
+
+        @Override
+        public String getName() {
+            return player.getName();
+        }
+
+        @Override
+        public ImageIcon getIcon() {
+            return player.getIcon();
+        }
+    }
+}
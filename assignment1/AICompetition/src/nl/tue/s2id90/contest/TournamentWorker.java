@@ -0,0 +1,124 @@
+package nl.tue.s2id90.contest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import nl.tue.s2id90.game.Game;
+import nl.tue.s2id90.game.Game.Result;
+import nl.tue.s2id90.game.GameState;
+import nl.tue.s2id90.game.Player;
+
+/**
+ * Plays the games that a TournamentCoordinator hands out, with a
+ * TournamentRunner; see TournamentCoordinator for the protocol. A worker
+ * opens one connection per game it plays at the same time. When it can not
+ * reach the coordinator, e.g. because the coordinator is being restarted,
+ * it tries again for a while before it gives up.
+ * @author huub
+ * @param <M> Move
+ * @param <S> GameState
+ */
+public class TournamentWorker<M, S extends GameState<M>> {
+    private static final Logger LOG = Logger.getLogger(TournamentWorker.class.getName());
+    /** how long a connection is tried again before the worker gives up. **/
+    private static final long RETRY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final TournamentRunner<M, S> runner;
+    private final Map<String, Player<M, S>> players = new HashMap<>();
+
+    /**
+     * @param runner plays the games
+     * @param players players of the tournament, with the names the coordinator uses
+     */
+    public TournamentWorker(TournamentRunner<M, S> runner, List<? extends Player<M, S>> players) {
+        this.runner = runner;
+        for (Player<M, S> player : players) {
+            this.players.put(player.getName(), player);
+        }
+    }
+
+    /**
+     * plays games until the coordinator has no games left or can not be
+     * reached anymore.
+     * @param host host of the coordinator
+     * @param port port of the coordinator
+     * @param games number of games that are played at the same time
+     */
+    public void play(String host, int port, int games) {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < games; i++) {
+            Thread t = new Thread(() -> work(host, port), "tournament-worker-" + i);
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) {
+            try {
+                t.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // plays the games of one connection, and connects again when it is lost
+    private void work(String host, int port) {
+        long giveUp = System.currentTimeMillis() + RETRY_MILLIS;
+        while (System.currentTimeMillis() < giveUp) {
+            try (Socket socket = new Socket(host, port);
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+                socket.setTcpNoDelay(true);
+                for (String line = in.readLine(); line != null; line = in.readLine()) {
+                    if (line.equals("quit")) {
+                        return;
+                    }
+                    out.println(play(line));
+                    out.flush();
+                    giveUp = System.currentTimeMillis() + RETRY_MILLIS;
+                }
+                LOG.log(Level.WARNING, "the coordinator closed the connection");
+            } catch (IOException ex) {
+                LOG.log(Level.FINE, "no connection with the coordinator", ex);
+            }
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        LOG.log(Level.SEVERE, "gave up on the coordinator at {0}:{1}", new Object[]{host, String.valueOf(port)});
+    }
+
+    // plays the game of a line "play id\twhite\tblack" and returns the answer
+    private String play(String line) throws IOException {
+        String[] fields = line.split("\t");
+        String[] words = fields[0].split("\\s+");
+        if (fields.length != 3 || words.length != 2 || !words[0].equals("play")) {
+            throw new IOException("unexpected command: " + line);
+        }
+        Player<M, S> white = players.get(fields[1]);
+        Player<M, S> black = players.get(fields[2]);
+        if (white == null || black == null) {
+            // closing the connection hands the game to another worker
+            LOG.log(Level.SEVERE, "unknown player in: {0}", line);
+            throw new IOException("unknown player in " + line);
+        }
+        Game game = new Game(white, black);
+        Result result = runner.playGame(game);
+        LOG.log(Level.INFO, "{0}: {1}", new Object[]{game, result});
+        return "result " + words[1] + " " + result;
+    }
+}
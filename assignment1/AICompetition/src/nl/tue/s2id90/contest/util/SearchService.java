@@ -0,0 +1,67 @@
+package nl.tue.s2id90.contest.util;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import nl.tue.s2id90.game.GameState;
+import nl.tue.s2id90.game.Player;
+import nl.tue.s2id90.game.TimeControl;
+
+/**
+ * Runs the searches of computer players. Every player gets its own search
+ * thread that is reused for all its moves, so searches of different players
+ * never wait for each other and no thread is started per move. The thread of
+ * a player ends after it has been idle for a minute, and is started again
+ * when needed.
+ * @author huub
+ */
+public final class SearchService {
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    // weak keys: the executor of a player that is no longer used disappears
+    private static final Map<Player<?, ?>, Executor> EXECUTORS = new WeakHashMap<>();
+
+    private SearchService() {
+    }
+
+    /**
+     * asks player for a move in state s on the search thread of the player.
+     * @param <M> Move
+     * @param <S> GameState
+     * @param player player
+     * @param s state, owned by the player during the search
+     * @param timeControl deadlines that are handed to the player, or null
+     * @return future move; completes exceptionally if getMove throws
+     */
+    public static <M, S extends GameState<M>> CompletableFuture<M> search(
+            Player<M, S> player, S s, TimeControl timeControl) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (timeControl != null) {
+                player.setTimeControl(timeControl);
+            }
+            return player.getMove(s);
+        }, executor(player));
+    }
+
+    private static synchronized Executor executor(Player<?, ?> player) {
+        Executor executor = EXECUTORS.get(player);
+        if (executor == null) {
+            // the thread factory must not refer to player, or the weak key never disappears
+            final String name = "search-" + player.getName();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                        Thread t = new Thread(r, name);
+                        t.setDaemon(true);
+                        return t;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+            EXECUTORS.put(player, executor);
+        }
+        return executor;
+    }
+}
@@ -1,22 +1,33 @@
 package nl.tue.s2id90.contest.util;
 
-import java.util.concurrent.ExecutionException;
-import javax.swing.SwingWorker;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
 import nl.tue.s2id90.game.GameState;
 import nl.tue.s2id90.game.Player;
+import nl.tue.s2id90.game.TimeControl;
 
 /**
- * class
+ * Lets a player search a move on its own search thread (see SearchService)
+ * and calls done() on the event dispatch thread when the move is found.
  * @author huub
  * @param <M>  Move
- * @param <U>  Undo
+ * @param <U>  Undo (not used, the search no longer runs in a SwingWorker)
  * @param <S> GameState
  */
 public abstract class SearchTask<M,U,S extends GameState<M>>
 {  
-    private SwingWorker<M,U> worker;
+    private static final Logger LOG = Logger.getLogger(SearchTask.class.getName());
+
+    private volatile CompletableFuture<M> future;
     private final Player<M,S> player;
     private final S state;
+    private volatile TimeControl timeControl = null;
+    private volatile Long stopTime = null;  // System.nanoTime() of stop(), null if not stopped
+    /** a longer stop latency is logged at level INFO. **/
+    private static final long MAX_STOP_LATENCY = TimeUnit.MILLISECONDS.toNanos(10);
 
     /**
      * @param player for whom to perform a search for the best move in state s
@@ -29,69 +40,73 @@ public abstract class SearchTask<M,U,S extends GameState<M>>
     
     /**
      * starts a background job to determine the best move of this SearchTask's
-     * player and calls done() when the job finishes.
+     * player and calls done() on the event dispatch thread when the job finishes.
+     * If the player throws an exception, done() gets null.
      * @see SearchTask#done(Object) 
-     * @see SwingWorker
+     * @see SearchService
      */
     public void execute() {
-        worker = createNewSwingWorker();
-        worker.execute();
-    }
-    
-    /** @return the moves of player in this state. **/
-    private M search() {
-        if (player!=null) {
-            try {
-                // we clone the state here, so whatever the player does with the
-                // state, will not ruin the GUI!
-                return player.getMove((S)state.clone());
-            } catch(Exception e) {
-                e.printStackTrace();
-                System.err.println(e);
-                return null;
-            }
+        if (player == null) {
+            future = CompletableFuture.completedFuture(null);
         } else {
-            return null;
+            // we clone the state here, so whatever the player does with the
+            // state, will not ruin the GUI!
+            future = SearchService.search(player, GameState.copy(state, null), timeControl);
         }
+        future.whenComplete((m, ex) -> {
+            Long stopped = stopTime;
+            if (stopped != null) {
+                logStopLatency(player, stopped);
+            }
+            searchFinished();
+            if (ex != null) {
+                LOG.log(Level.SEVERE, "Exception in search task", ex);
+            }
+            SwingUtilities.invokeLater(() -> done(ex == null ? m : null));
+        });
     }
-    
+
     /**
-     * @return swing worker that starts the search() method and calls done() when that 
-     *         task finishes.
-     * @see SwingWorker
+     * sets the deadlines that are handed to the player before its search.
+     * @param timeControl deadlines, or null for no time limit
      */
-    private SwingWorker<M,U> createNewSwingWorker() {
-        return new SwingWorker<M,U>() {
-            @Override
-            protected M doInBackground() throws Exception {
-                    return SearchTask.this.search();
-            }
+    protected void setTimeControl(TimeControl timeControl) {
+        this.timeControl = timeControl;
+    }
 
-            @Override
-            protected void done() {
-                try {
-                    M m = get(); // gets computed move
-                    SearchTask.this.done(m);
-                    
-                } catch (InterruptedException | ExecutionException ex) { 
-                    System.err.println("Exception in search task: " + ex);
-                }
-            }            
-        };
+    /** method called on the search thread when the search finished, before done(). **/
+    protected void searchFinished() {
     }
     
     /**
-     * method called just before execute finishes.
+     * logs the stop latency of player: the time from the call of its stop()
+     * until it returned its move.
+     * @param player player that just returned from getMove()
+     * @param stopTime System.nanoTime() when stop() was called on player
+     */
+    public static void logStopLatency(Player<?,?> player, long stopTime) {
+        long latency = System.nanoTime() - stopTime;
+        LOG.log(latency > MAX_STOP_LATENCY ? Level.INFO : Level.FINE, "{0} returned its move {1} ms after stop()",
+                new Object[]{player.getName(), TimeUnit.NANOSECONDS.toMillis(latency)});
+    }
+
+    /**
+     * method called on the event dispatch thread when the search finishes.
      * @param m move found in search
      * @see execute()
      */
     abstract public void done(M m);
     
     /**
-     *
+     * stops the search of the player, if it is running. A stop before
+     * execute() has started the search does nothing.
      */
     public void stop() {
+        CompletableFuture<M> f = future;
         // only do this once!
-        if (!worker.isDone()) player.stop();
+        if (f != null && !f.isDone()) {
+            stopTime = System.nanoTime();
+            player.stop();
+        }
     }
 }
\ No newline at end of file
@@ -1,13 +1,17 @@
 package nl.tue.s2id90.contest.util;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import nl.tue.s2id90.game.GameState;
 import nl.tue.s2id90.game.Player;
+import nl.tue.s2id90.game.TimeControl;
 
 /**
- * This search task automatically stops after given number of seconds. This is done
- * by calling its stop() method in a TimerTask.
+ * This search task hands its player a TimeControl with the given time limit,
+ * so the player can finish in time by itself. As a fallback the task calls its
+ * stop() method when the time limit has passed.
  * @author huub
  * @param <M> Move 
  * @param <U> UndoMove
@@ -15,15 +19,37 @@ import nl.tue.s2id90.game.Player;
  */
 public abstract class TimedSearchTask<M, U, S extends GameState<M>>
     extends SearchTask<M, U, S> {
-    static Timer timer = new Timer();  // can schedule multiple tasks, so no need to make a new one
+    // can schedule the stop of many tasks; a task that finishes in time cancels
+    // its stop, so this thread hardly has anything to do
+    private static final ScheduledThreadPoolExecutor STOPPER =
+            new ScheduledThreadPoolExecutor(1, r -> {
+                Thread t = Executors.defaultThreadFactory().newThread(r);
+                t.setName("search-task-stopper");
+                t.setDaemon(true);
+                return t;
+            });
+
+    static {
+        STOPPER.setRemoveOnCancelPolicy(true);
+    }
+
+    private final int timeLimitInSeconds;
+    private ScheduledFuture<?> stop;
+
     public TimedSearchTask(Player<M, S> player, S s, int timeLimitInSeconds) {
         super(player, s);
-        TimerTask task = new TimerTask() {
-            @Override
-            public void run() {
-                    TimedSearchTask.this.stop();
-            }            
-        };
-        timer.schedule(task, timeLimitInSeconds*1000);        
-    }    
+        this.timeLimitInSeconds = timeLimitInSeconds;
+    }
+
+    @Override
+    public void execute() {
+        setTimeControl(TimeControl.forMove(1000L * timeLimitInSeconds));
+        stop = STOPPER.schedule(this::stop, timeLimitInSeconds, TimeUnit.SECONDS);
+        super.execute();
+    }
+
+    @Override
+    protected void searchFinished() {
+        stop.cancel(false);
+    }
 }
@@ -0,0 +1,328 @@
+package nl.tue.s2id90.draughts;
+
+import java.util.List;
+import static nl.tue.s2id90.draughts.DraughtsState.BLACKKING;
+import static nl.tue.s2id90.draughts.DraughtsState.BLACKPIECE;
+import static nl.tue.s2id90.draughts.DraughtsState.WHITEKING;
+import static nl.tue.s2id90.draughts.DraughtsState.WHITEPIECE;
+import org10x10.dam.game.Move;
+
+/**
+ * Move generator for international draughts that works directly on the
+ * bitboards of a BitboardState. Square s (0..49) corresponds to field s+1.
+ * Men move one step forward and capture in all four directions, kings move and
+ * capture over any distance, captured pieces are removed only after the whole
+ * capture and the capture with the largest number of pieces is mandatory.
+ *
+ * The generated moves are equal (see Move#equals) to the moves generated by
+ * MoveGeneratorFactory.createMoveGeneratorInternational().
+ * @author dennis
+ */
+final class BitboardMoveGenerator {
+    /** directions, seen from the white player. **/
+    static final int NW = 0, NE = 1, SW = 2, SE = 3;
+
+    /** all 50 playable squares. **/
+    static final long FULL = (1L << 50) - 1;
+
+    /** squares on which a white man (row 0) or a black man (row 9) promotes. **/
+    static final long WHITE_PROMOTION = 0x1FL;
+    static final long BLACK_PROMOTION = 0x1FL << 45;
+
+    /** NEIGHBOUR[d][s] is the square next to s in direction d, or -1. **/
+    static final int[][] NEIGHBOUR = new int[4][50];
+
+    private static final int[] DROW = {-1, -1, 1, 1};
+    private static final int[] DCOL = {-1, 1, -1, 1};
+
+    static {
+        for (int s = 0; s < 50; s++) {
+            int r = row(s), c = column(s);
+            for (int d = 0; d < 4; d++) {
+                int nr = r + DROW[d], nc = c + DCOL[d];
+                if (nr < 0 || nr > 9 || nc < 0 || nc > 9) {
+                    NEIGHBOUR[d][s] = -1;
+                } else {
+                    NEIGHBOUR[d][s] = nr * 5 + nc / 2;
+                }
+            }
+        }
+    }
+
+    /** @return row (0..9) of square s **/
+    static int row(int s) {
+        return s / 5;
+    }
+
+    /** @return column (0..9) of square s **/
+    static int column(int s) {
+        int r = s / 5;
+        return 2 * (s % 5) + (r % 2 == 0 ? 1 : 0);
+    }
+
+    // scratch data for the capture search; one capture can take at most 20 pieces
+    private final int[] path = new int[22];
+    private final int[] captured = new int[21];
+    private long enemy, enemyKings, occupied;
+    private int beginPiece, promotedPiece, enemyPiece, enemyKing;
+    private long promotion;
+    private int best;
+    private List<Move> moves;       // output for Move objects, or null
+    private long[] packedMoves;     // output for packed moves, or null
+    private int count;              // number of packed moves
+    private boolean captures = true, quietMoves = true;  // kinds of moves to generate
+
+    /**
+     * stores all legal moves for the player to move in state s as packed moves
+     * (see BitboardState#encodeMove) in out. Captures that only differ in the
+     * order in which the pieces are taken are stored once.
+     * @param s state
+     * @param out array with room for BitboardState.MAX_MOVES moves
+     * @return number of moves
+     * @throws ArrayIndexOutOfBoundsException if out is too small for the moves
+     */
+    int generateMoves(BitboardState s, long[] out) {
+        packedMoves = out;
+        count = 0;
+        try {
+            generate(s);
+        } finally {
+            packedMoves = null;
+        }
+        return count;
+    }
+
+    /**
+     * stores the legal captures for the player to move in state s as packed
+     * moves in out; see generateMoves(BitboardState, long[]).
+     * @param s state
+     * @param out array with room for BitboardState.MAX_MOVES moves
+     * @return number of captures; 0 if the player to move can not capture
+     */
+    int generateCaptures(BitboardState s, long[] out) {
+        quietMoves = false;
+        try {
+            return generateMoves(s, out);
+        } finally {
+            quietMoves = true;
+        }
+    }
+
+    /**
+     * stores the legal moves that are not captures for the player to move in
+     * state s as packed moves in out.
+     * @param s state
+     * @param out array with room for BitboardState.MAX_MOVES moves
+     * @return number of moves; 0 if the player to move must capture
+     */
+    int generateQuietMoves(BitboardState s, long[] out) {
+        boolean white = s.isWhiteToMove();
+        if (hasCapture(white ? s.white : s.black, white ? s.black : s.white, s.kings)) {
+            return 0;
+        }
+        captures = false;
+        try {
+            return generateMoves(s, out);
+        } finally {
+            captures = true;
+        }
+    }
+
+    /**
+     * tells whether the player to move has a legal move, without generating
+     * the moves: it stops at the first piece that can move or capture.
+     * @param own pieces of the player to move
+     * @param enemy pieces of the opponent
+     * @param kings kings of both players
+     * @param white whether or not white is to move
+     * @return whether or not there is a legal move
+     */
+    static boolean hasMoves(long own, long enemy, long kings, boolean white) {
+        long empty = ~(own | enemy) & FULL;
+        for (long bb = own; bb != 0; bb &= bb - 1) {
+            int from = Long.numberOfTrailingZeros(bb);
+            boolean king = (kings & (1L << from)) != 0;
+            for (int d = king || white ? NW : SW, end = king || !white ? SE + 1 : NE + 1; d < end; d++) {
+                int to = NEIGHBOUR[d][from];
+                if (to >= 0 && (empty & (1L << to)) != 0) {
+                    return true;
+                }
+            }
+        }
+        return hasCapture(own, enemy, kings);
+    }
+
+    // whether or not a piece of own can capture a piece of enemy; only the
+    // first capture of a move is looked at
+    private static boolean hasCapture(long own, long enemy, long kings) {
+        long occupied = own | enemy;
+        for (long bb = own; bb != 0; bb &= bb - 1) {
+            int from = Long.numberOfTrailingZeros(bb);
+            boolean king = (kings & (1L << from)) != 0;
+            for (int d = 0; d < 4; d++) {
+                int v = NEIGHBOUR[d][from];
+                while (king && v >= 0 && (occupied & (1L << v)) == 0) {
+                    v = NEIGHBOUR[d][v];
+                }
+                if (v >= 0 && (enemy & (1L << v)) != 0) {
+                    int l = NEIGHBOUR[d][v];
+                    if (l >= 0 && (occupied & (1L << l)) == 0) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * adds all legal moves for the player to move in state s to the empty list out.
+     * @param s state
+     * @param out list to which the moves are added
+     */
+    void generateMoves(BitboardState s, List<Move> out) {
+        moves = out;
+        generate(s);
+        moves = null;
+    }
+
+    private void generate(BitboardState s) {
+        boolean white = s.isWhiteToMove();
+        long own = white ? s.white : s.black;
+        long kings = s.kings;
+        enemy = white ? s.black : s.white;
+        enemyKings = enemy & kings;
+        promotion = white ? WHITE_PROMOTION : BLACK_PROMOTION;
+        promotedPiece = white ? WHITEKING : BLACKKING;
+        enemyPiece = white ? BLACKPIECE : WHITEPIECE;
+        enemyKing = white ? BLACKKING : WHITEKING;
+        best = 0;
+
+        // captures
+        for (long bb = captures ? own : 0; bb != 0; bb &= bb - 1) {
+            int from = Long.numberOfTrailingZeros(bb);
+            boolean king = (kings & (1L << from)) != 0;
+            beginPiece = king ? promotedPiece : (white ? WHITEPIECE : BLACKPIECE);
+            occupied = (s.white | s.black) & ~(1L << from);
+            path[0] = from;
+            if (king) {
+                kingCaptures(from, 0, 0L);
+            } else {
+                manCaptures(from, 0, 0L);
+            }
+        }
+        if (best > 0 || !quietMoves) {
+            return;
+        }
+
+        // no capture possible: ordinary moves
+        long empty = ~(s.white | s.black) & FULL;
+        for (long bb = own; bb != 0; bb &= bb - 1) {
+            int from = Long.numberOfTrailingZeros(bb);
+            if ((kings & (1L << from)) != 0) {
+                for (int d = 0; d < 4; d++) {
+                    for (int to = NEIGHBOUR[d][from]; to >= 0 && (empty & (1L << to)) != 0;
+                            to = NEIGHBOUR[d][to]) {
+                        addMove(from, to, promotedPiece, promotedPiece);
+                    }
+                }
+            } else {
+                int piece = white ? WHITEPIECE : BLACKPIECE;
+                for (int d = white ? NW : SW, end = d + 2; d < end; d++) {
+                    int to = NEIGHBOUR[d][from];
+                    if (to >= 0 && (empty & (1L << to)) != 0) {
+                        int endPiece = (promotion & (1L << to)) != 0 ? promotedPiece : piece;
+                        addMove(from, to, piece, endPiece);
+                    }
+                }
+            }
+        }
+    }
+
+    // continue the capture of a man standing on s after n captures
+    private void manCaptures(int s, int n, long taken) {
+        boolean found = false;
+        for (int d = 0; d < 4; d++) {
+            int v = NEIGHBOUR[d][s];
+            if (v < 0 || ((enemy & ~taken) & (1L << v)) == 0) {
+                continue;
+            }
+            int l = NEIGHBOUR[d][v];
+            if (l >= 0 && (occupied & (1L << l)) == 0) {
+                found = true;
+                captured[n] = v;
+                path[n + 1] = l;
+                manCaptures(l, n + 1, taken | (1L << v));
+            }
+        }
+        if (!found && n > 0) {
+            addCapture(n, (promotion & (1L << s)) != 0 ? promotedPiece : beginPiece, taken);
+        }
+    }
+
+    // continue the capture of a king standing on s after n captures
+    private void kingCaptures(int s, int n, long taken) {
+        boolean found = false;
+        for (int d = 0; d < 4; d++) {
+            int v = NEIGHBOUR[d][s];
+            while (v >= 0 && (occupied & (1L << v)) == 0) {
+                v = NEIGHBOUR[d][v];
+            }
+            if (v < 0 || ((enemy & ~taken) & (1L << v)) == 0) {
+                continue;
+            }
+            for (int l = NEIGHBOUR[d][v]; l >= 0 && (occupied & (1L << l)) == 0; l = NEIGHBOUR[d][l]) {
+                found = true;
+                captured[n] = v;
+                path[n + 1] = l;
+                kingCaptures(l, n + 1, taken | (1L << v));
+            }
+        }
+        if (!found && n > 0) {
+            addCapture(n, beginPiece, taken);
+        }
+    }
+
+    // adds the capture of n pieces in path/captured, respecting the maximum capture rule
+    private void addCapture(int n, int endPiece, long taken) {
+        if (n < best) {
+            return;
+        }
+        if (n > best) {
+            if (moves != null) {
+                moves.clear();
+            }
+            count = 0;
+            best = n;
+        }
+        if (packedMoves != null) {
+            long move = BitboardState.encodeMove(path[0], path[n], taken);
+            for (int i = 0; i < count; i++) {
+                if (packedMoves[i] == move) {
+                    return;     // same capture along another path
+                }
+            }
+            // more than MAX_MOVES moves throws instead of losing moves
+            packedMoves[count++] = move;
+            return;
+        }
+        int[] fields = new int[n + 1];
+        int[] capturedFields = new int[n];
+        int[] capturedPieces = new int[n];
+        fields[0] = path[0] + 1;
+        for (int i = 0; i < n; i++) {
+            fields[i + 1] = path[i + 1] + 1;
+            capturedFields[i] = captured[i] + 1;
+            capturedPieces[i] = (enemyKings & (1L << captured[i])) != 0 ? enemyKing : enemyPiece;
+        }
+        moves.add(new Move(fields, capturedPieces, capturedFields, beginPiece, endPiece));
+    }
+
+    private void addMove(int from, int to, int beginPiece, int endPiece) {
+        if (packedMoves != null) {
+            packedMoves[count++] = BitboardState.encodeMove(from, to, 0L);
+        } else {
+            moves.add(new Move(new int[]{from + 1, to + 1}, new int[0], new int[0], beginPiece, endPiece));
+        }
+    }
+}
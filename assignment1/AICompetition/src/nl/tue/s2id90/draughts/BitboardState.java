@@ -0,0 +1,687 @@
+package nl.tue.s2id90.draughts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import nl.tue.s2id90.game.CopyableState;
+import nl.tue.s2id90.game.GameState;
+import nl.tue.s2id90.game.HashableState;
+import org10x10.dam.game.BoardState;
+import org10x10.dam.game.Move;
+
+/**
+ * A draughts state that keeps the 50 playable fields in three bitboards and
+ * uses its own move generator for international draughts. Bit f-1 of a
+ * bitboard corresponds to field f (see DraughtsState for the numbering).
+ *
+ * This state can be used as a faster replacement for DraughtsState during a
+ * search; the moves it generates are equal to the moves of a DraughtsState
+ * in the same position, so they can be returned from Player#getMove.
+ * @author dennis
+ */
+public class BitboardState implements HashableState<Move>, CopyableState<Move> {
+    long white;     // white pieces (men and kings)
+    long black;     // black pieces (men and kings)
+    long kings;     // kings of both colors
+    private boolean whiteToMove;
+    private long hash;  // Zobrist key of this position
+    private int score;  // sum of pieceSquareTable over all pieces
+    private int[][] pieceSquareTable = NO_TABLE;
+
+    /** piece-square table with only zeros, used when none is set. **/
+    private static final int[][] NO_TABLE = new int[5][50];
+
+    /** ZOBRIST[piece][f-1] is the key of piece on field f. **/
+    static final long[][] ZOBRIST = new long[5][50];
+    /** key that is added when black is to move. **/
+    static final long ZOBRIST_BLACK_TO_MOVE;
+
+    static {
+        // a fixed seed, so the keys of a position are the same in every run
+        Random random = new Random(2015);
+        for (int piece = 1; piece < ZOBRIST.length; piece++) {
+            for (int s = 0; s < 50; s++) {
+                ZOBRIST[piece][s] = random.nextLong();
+            }
+        }
+        ZOBRIST_BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private final BitboardMoveGenerator moveGenerator = new BitboardMoveGenerator();
+    private List<Move> moves = null;
+    private long[] countedMoves = null;     // scratch array of moveCount()
+
+    // undo information of packed moves: kings, hash key and score before the move
+    private long[] undoKings = new long[64];
+    private long[] undoHash = new long[64];
+    private int[] undoScore = new int[64];
+    private int undoCount = 0;
+
+    /** size of a move array for generateMoves(long[]). **/
+    public static final int MAX_MOVES = 256;
+
+    /**
+     * creates an initial draughts state.
+     */
+    public BitboardState() {
+        reset();
+    }
+
+    /**
+     * creates a bitboard state with the same position as the given state.
+     * @param ds state to copy
+     */
+    public BitboardState(DraughtsState ds) {
+        this(ds.getPieces(), ds.isWhiteToMove());
+    }
+
+    /**
+     * creates a bitboard state with the same position as the given board state.
+     * @param bs board state to copy
+     */
+    public BitboardState(BoardState bs) {
+        this(bs.getPieces(), bs.isWhiteToMove());
+    }
+
+    private BitboardState(int[] pieces, boolean whiteToMove) {
+        setPieces(pieces);
+        this.whiteToMove = whiteToMove;
+        hash = computeHashKey();
+    }
+
+    private BitboardState(BitboardState bs) {
+        white = bs.white;
+        black = bs.black;
+        kings = bs.kings;
+        whiteToMove = bs.whiteToMove;
+        hash = bs.hash;
+        pieceSquareTable = bs.pieceSquareTable;
+        score = bs.score;
+    }
+
+    private void setPieces(int[] pieces) {
+        white = black = kings = 0;
+        for (int f = 1; f <= 50; f++) {
+            long bit = 1L << (f - 1);
+            switch (pieces[f]) {
+                case DraughtsState.WHITEKING:
+                    kings |= bit;
+                    white |= bit;
+                    break;
+                case DraughtsState.WHITEPIECE:
+                    white |= bit;
+                    break;
+                case DraughtsState.BLACKKING:
+                    kings |= bit;
+                    black |= bit;
+                    break;
+                case DraughtsState.BLACKPIECE:
+                    black |= bit;
+                    break;
+            }
+        }
+    }
+
+    // computes the Zobrist key of this position from scratch
+    private long computeHashKey() {
+        long h = whiteToMove ? 0 : ZOBRIST_BLACK_TO_MOVE;
+        for (int f = 1; f <= 50; f++) {
+            h ^= ZOBRIST[getPiece(f)][f - 1];   // ZOBRIST[EMPTY] is all zero
+        }
+        return h;
+    }
+
+    // computes the piece-square score of this position from scratch
+    private int computeScore() {
+        int sum = 0;
+        for (int f = 1; f <= 50; f++) {
+            sum += pieceSquareTable[getPiece(f)][f - 1];
+        }
+        return sum;
+    }
+
+    /**
+     * sets a piece-square table: table[piece][f-1] is the value of piece on
+     * field f, with piece one of the piece constants of DraughtsState.
+     * The sum of the values of all pieces on the board is kept up to date by
+     * doMove and undoMove, see getPieceSquareScore(). Clones share the table.
+     * @param table table of 5 rows (EMPTY..BLACKKING) of 50 values; row EMPTY
+     * must be all zero. The table must not be changed afterwards.
+     */
+    public void setPieceSquareTable(int[][] table) {
+        if (table.length != 5) throw new IllegalArgumentException("table must have 5 rows");
+        for (int[] row : table) {
+            if (row.length != 50) throw new IllegalArgumentException("rows must have 50 values");
+        }
+        pieceSquareTable = table;
+        score = computeScore();
+    }
+
+    /** @return the piece-square table, see setPieceSquareTable() **/
+    public int[][] getPieceSquareTable() {
+        return pieceSquareTable;
+    }
+
+    /**
+     * returns the sum of the piece-square table values of all pieces; the sum
+     * is updated incrementally, so this takes constant time.
+     * @return piece-square score, 0 if no table is set
+     */
+    public int getPieceSquareScore() {
+        return score;
+    }
+
+    /**
+     * returns a 64 bit Zobrist key of this position (pieces and player to move).
+     * The key is updated incrementally by doMove and undoMove.
+     * @return hash key of this state
+     */
+    @Override
+    public long hashKey() {
+        return hash;
+    }
+
+    // the change of the hash key caused by move m; doMove and undoMove both apply it
+    static long hashDelta(Move m) {
+        long h = ZOBRIST_BLACK_TO_MOVE
+                ^ ZOBRIST[m.getBeginPiece()][m.getBeginField() - 1]
+                ^ ZOBRIST[m.getEndPiece()][m.getEndField() - 1];
+        for (int i = 0; i < m.getCaptureCount(); i++) {
+            h ^= ZOBRIST[m.getCapturedPiece(i)][m.getCapturedField(i) - 1];
+        }
+        return h;
+    }
+
+    // the change of the piece-square score caused by move m
+    private int scoreDelta(Move m) {
+        int d = pieceSquareTable[m.getEndPiece()][m.getEndField() - 1]
+              - pieceSquareTable[m.getBeginPiece()][m.getBeginField() - 1];
+        for (int i = 0; i < m.getCaptureCount(); i++) {
+            d -= pieceSquareTable[m.getCapturedPiece(i)][m.getCapturedField(i) - 1];
+        }
+        return d;
+    }
+
+    @Override
+    public List<Move> getMoves() {
+        if (moves == null) {
+            moves = new ArrayList<>();
+            moveGenerator.generateMoves(this, moves);
+        }
+        return moves;
+    }
+
+    @Override
+    public boolean isEndState() {
+        return !hasMoves();
+    }
+
+    /**
+     * tells whether the player to move has a legal move. Uses the moves of
+     * getMoves() if they are known, and otherwise stops at the first piece
+     * that can move, without generating moves.
+     * @return whether or not there is a legal move
+     */
+    @Override
+    public boolean hasMoves() {
+        if (moves != null) {
+            return !moves.isEmpty();
+        }
+        return BitboardMoveGenerator.hasMoves(whiteToMove ? white : black, whiteToMove ? black : white,
+                kings, whiteToMove);
+    }
+
+    @Override
+    public void doMove(Move m) {
+        moves = null;      // invalidate moves
+        int from = m.getBeginField() - 1, to = m.getEndField() - 1;
+        long fromBit = 1L << from, toBit = 1L << to;
+        long captured = 0;
+        for (int i = 0; i < m.getCaptureCount(); i++) {
+            captured |= 1L << (m.getCapturedField(i) - 1);
+        }
+        kings &= ~(captured | fromBit);
+        if (whiteToMove) {
+            white = (white & ~fromBit) | toBit;
+            black &= ~captured;
+        } else {
+            black = (black & ~fromBit) | toBit;
+            white &= ~captured;
+        }
+        if (Draughts.isKing(m.getEndPiece())) {
+            kings |= toBit;
+        }
+        whiteToMove = !whiteToMove;
+        hash ^= hashDelta(m);
+        score += scoreDelta(m);
+    }
+
+    @Override
+    public void undoMove(Move m) {
+        moves = null;      // invalidate cached moves
+        whiteToMove = !whiteToMove;
+        int from = m.getBeginField() - 1, to = m.getEndField() - 1;
+        long fromBit = 1L << from, toBit = 1L << to;
+        long captured = 0, capturedKings = 0;
+        for (int i = 0; i < m.getCaptureCount(); i++) {
+            long bit = 1L << (m.getCapturedField(i) - 1);
+            captured |= bit;
+            if (Draughts.isKing(m.getCapturedPiece(i))) {
+                capturedKings |= bit;
+            }
+        }
+        kings = (kings & ~toBit) | capturedKings;
+        if (Draughts.isKing(m.getBeginPiece())) {
+            kings |= fromBit;
+        }
+        if (whiteToMove) {
+            white = (white & ~toBit) | fromBit;
+            black |= captured;
+        } else {
+            black = (black & ~toBit) | fromBit;
+            white |= captured;
+        }
+        hash ^= hashDelta(m);
+        score -= scoreDelta(m);
+    }
+
+    /** undo information of doMove(Move, Undo): the move and the cached moves. **/
+    private static final class UndoRecord implements Undo<Move> {
+        private Move move;
+        private List<Move> moves;
+
+        @Override
+        public Move getMove() {
+            return move;
+        }
+    }
+
+    /**
+     * applies move m and returns the information to undo it; undoMove(Undo)
+     * restores the cached moves of this state, so they are not generated again.
+     * @param m move to be applied
+     * @param reuse undo information to reuse, or null
+     * @return undo information
+     */
+    @Override
+    public Undo<Move> doMove(Move m, Undo<Move> reuse) {
+        UndoRecord undo = reuse instanceof UndoRecord ? (UndoRecord) reuse : new UndoRecord();
+        undo.move = m;
+        undo.moves = moves;
+        doMove(m);
+        return undo;
+    }
+
+    @Override
+    public void undoMove(Undo<Move> undo) {
+        undoMove(undo.getMove());
+        if (undo instanceof UndoRecord) {
+            moves = ((UndoRecord) undo).moves;
+        }
+    }
+
+    /**
+     * @return the number of legal moves; captures that only differ in the
+     * order in which the pieces are taken are counted once
+     */
+    @Override
+    public int moveCount() {
+        if (countedMoves == null) {
+            countedMoves = new long[MAX_MOVES];
+        }
+        return generateMoves(countedMoves);
+    }
+
+    /**
+     * makes target equal to this state, including the piece-square table,
+     * without allocating. The undo history of packed moves is not copied.
+     * @param target a BitboardState
+     */
+    @Override
+    public void copyInto(GameState<Move> target) {
+        if (!(target instanceof BitboardState)) {
+            throw new IllegalArgumentException("target is not a BitboardState");
+        }
+        BitboardState t = (BitboardState) target;
+        t.moves = null;     // invalidate cached moves
+        t.white = white;
+        t.black = black;
+        t.kings = kings;
+        t.whiteToMove = whiteToMove;
+        t.hash = hash;
+        t.pieceSquareTable = pieceSquareTable;
+        t.score = score;
+        t.undoCount = 0;
+    }
+
+    /**
+     * Packed moves are an allocation-free alternative for Move objects,
+     * meant for searches. A packed move is a long that holds the captured
+     * pieces as a bitboard (bits 0-49), the begin square (bits 50-55) and the
+     * end square (bits 56-61). Squares are numbered 0..49 (field-1).
+     * @param from begin square
+     * @param to end square
+     * @param captures bitboard of the captured pieces
+     * @return packed move
+     */
+    public static long encodeMove(int from, int to, long captures) {
+        return captures | ((long) from << 50) | ((long) to << 56);
+    }
+
+    /** @return begin square (field-1) of packed move **/
+    public static int moveFrom(long move) {
+        return (int) (move >>> 50) & 0x3F;
+    }
+
+    /** @return end square (field-1) of packed move **/
+    public static int moveTo(long move) {
+        return (int) (move >>> 56) & 0x3F;
+    }
+
+    /** @return bitboard of the pieces captured by packed move **/
+    public static long moveCaptures(long move) {
+        return move & BitboardMoveGenerator.FULL;
+    }
+
+    /**
+     * stores the legal moves in this state as packed moves in out, without
+     * allocating any objects.
+     * @param out array of length MAX_MOVES
+     * @return number of moves
+     */
+    public int generateMoves(long[] out) {
+        return moveGenerator.generateMoves(this, out);
+    }
+
+    /**
+     * stores the legal captures in this state as packed moves in out. Since
+     * captures are compulsory, these are all legal moves if there are any.
+     * @param out array of length MAX_MOVES
+     * @return number of captures; 0 if the player to move can not capture
+     */
+    public int generateCaptures(long[] out) {
+        return moveGenerator.generateCaptures(this, out);
+    }
+
+    /**
+     * stores the legal moves that are not captures in this state as packed
+     * moves in out. Together with generateCaptures() these are all legal moves.
+     * @param out array of length MAX_MOVES
+     * @return number of moves; 0 if the player to move must capture
+     */
+    public int generateQuietMoves(long[] out) {
+        return moveGenerator.generateQuietMoves(this, out);
+    }
+
+    /**
+     * applies packed move m in this state; undo it with undoMove(long).
+     * @param m packed move
+     */
+    public void doMove(long m) {
+        moves = null;      // invalidate moves
+        if (undoCount == undoKings.length) {
+            undoKings = Arrays.copyOf(undoKings, 2 * undoCount);
+            undoHash = Arrays.copyOf(undoHash, 2 * undoCount);
+            undoScore = Arrays.copyOf(undoScore, 2 * undoCount);
+        }
+        undoKings[undoCount] = kings;
+        undoScore[undoCount] = score;
+        undoHash[undoCount++] = hash;
+
+        int from = moveFrom(m), to = moveTo(m);
+        long fromBit = 1L << from, toBit = 1L << to;
+        long captured = moveCaptures(m);
+        boolean king = (kings & fromBit) != 0;
+        int piece, endPiece, enemyPiece, enemyKing;
+        if (whiteToMove) {
+            piece = king ? DraughtsState.WHITEKING : DraughtsState.WHITEPIECE;
+            endPiece = king || (toBit & BitboardMoveGenerator.WHITE_PROMOTION) != 0
+                     ? DraughtsState.WHITEKING : DraughtsState.WHITEPIECE;
+            enemyPiece = DraughtsState.BLACKPIECE;
+            enemyKing = DraughtsState.BLACKKING;
+        } else {
+            piece = king ? DraughtsState.BLACKKING : DraughtsState.BLACKPIECE;
+            endPiece = king || (toBit & BitboardMoveGenerator.BLACK_PROMOTION) != 0
+                     ? DraughtsState.BLACKKING : DraughtsState.BLACKPIECE;
+            enemyPiece = DraughtsState.WHITEPIECE;
+            enemyKing = DraughtsState.WHITEKING;
+        }
+        int[][] table = pieceSquareTable;
+        long h = ZOBRIST_BLACK_TO_MOVE ^ ZOBRIST[piece][from] ^ ZOBRIST[endPiece][to];
+        int d = table[endPiece][to] - table[piece][from];
+        for (long bb = captured; bb != 0; bb &= bb - 1) {
+            int s = Long.numberOfTrailingZeros(bb);
+            int p = (kings & (1L << s)) != 0 ? enemyKing : enemyPiece;
+            h ^= ZOBRIST[p][s];
+            d -= table[p][s];
+        }
+        hash ^= h;
+        score += d;
+
+        kings &= ~(captured | fromBit);
+        if (whiteToMove) {
+            white = (white & ~fromBit) | toBit;
+            black &= ~captured;
+        } else {
+            black = (black & ~fromBit) | toBit;
+            white &= ~captured;
+        }
+        if (Draughts.isKing(endPiece)) {
+            kings |= toBit;
+        }
+        whiteToMove = !whiteToMove;
+    }
+
+    /**
+     * undoes packed move m, which must be the last move done with doMove(long).
+     * @param m packed move
+     */
+    public void undoMove(long m) {
+        moves = null;      // invalidate cached moves
+        whiteToMove = !whiteToMove;
+        long fromBit = 1L << moveFrom(m), toBit = 1L << moveTo(m);
+        long captured = moveCaptures(m);
+        if (whiteToMove) {
+            white = (white & ~toBit) | fromBit;
+            black |= captured;
+        } else {
+            black = (black & ~toBit) | fromBit;
+            white |= captured;
+        }
+        undoCount--;
+        kings = undoKings[undoCount];
+        hash = undoHash[undoCount];
+        score = undoScore[undoCount];
+    }
+
+    /**
+     * @param m packed move of this state
+     * @return the legal Move that is equal to m, or null if there is none
+     */
+    public Move toMove(long m) {
+        for (Move move : getMoves()) {
+            if (move.getBeginField() - 1 == moveFrom(m) && move.getEndField() - 1 == moveTo(m)
+                    && move.getCaptureCount() == Long.bitCount(moveCaptures(m))) {
+                boolean same = true;
+                for (int i = 0; i < move.getCaptureCount(); i++) {
+                    same &= (moveCaptures(m) & (1L << (move.getCapturedField(i) - 1))) != 0;
+                }
+                if (same) {
+                    return move;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** returns an array a of length 51:
+     * a[0] is unused; a[i] is one of {WHITEPIECE,BLACKPIECE,WHITEKING,BLACKKING,EMPTY}.
+     * Unlike DraughtsState#getPieces(), changing this array does not change
+     * this state.
+     * @return copy of the state of the board as an int array.
+     */
+    public int[] getPieces() {
+        int[] pieces = new int[51];
+        for (int f = 1; f <= 50; f++) {
+            pieces[f] = getPiece(f);
+        }
+        return pieces;
+    }
+
+    /** @return piece at field f
+     * @see DraughtsState#getPiece(int)
+     **/
+    public int getPiece(int f) {
+        if (f < 1 || f > 50) throw new IllegalArgumentException();
+        long bit = 1L << (f - 1);
+        boolean king = (kings & bit) != 0;
+        if ((white & bit) != 0) {
+            return king ? DraughtsState.WHITEKING : DraughtsState.WHITEPIECE;
+        } else if ((black & bit) != 0) {
+            return king ? DraughtsState.BLACKKING : DraughtsState.BLACKPIECE;
+        }
+        return DraughtsState.EMPTY;
+    }
+
+    /** @return bitboard of the white men **/
+    public long getWhiteMen() {
+        return white & ~kings;
+    }
+
+    /** @return bitboard of the black men **/
+    public long getBlackMen() {
+        return black & ~kings;
+    }
+
+    /** @return bitboard of the white kings **/
+    public long getWhiteKings() {
+        return white & kings;
+    }
+
+    /** @return bitboard of the black kings **/
+    public long getBlackKings() {
+        return black & kings;
+    }
+
+    /** @return bitboard of the empty fields **/
+    public long getEmpty() {
+        return ~(white | black) & BitboardMoveGenerator.FULL;
+    }
+
+    @Override
+    public boolean isWhiteToMove() {
+        return whiteToMove;
+    }
+
+    @Override
+    public void reset() {
+        moves = null;       // invalidate cached moves
+        black = (1L << 20) - 1;                           // fields 1-20
+        white = ((1L << 20) - 1) << 30;                   // fields 31-50
+        kings = 0;
+        whiteToMove = true;
+        hash = computeHashKey();
+        score = computeScore();
+    }
+
+    /**
+     * replaces the position of this state, without allocating. The
+     * piece-square table is kept, the undo history is cleared.
+     * @param whiteMen white men
+     * @param whiteKings white kings
+     * @param blackMen black men
+     * @param blackKings black kings
+     * @param whiteToMove whether or not white is to move
+     */
+    public void setPosition(long whiteMen, long whiteKings, long blackMen, long blackKings,
+                            boolean whiteToMove) {
+        moves = null;       // invalidate cached moves
+        white = whiteMen | whiteKings;
+        black = blackMen | blackKings;
+        kings = whiteKings | blackKings;
+        this.whiteToMove = whiteToMove;
+        undoCount = 0;
+        hash = computeHashKey();
+        score = computeScore();
+    }
+
+    /** @return a board state with the same position as this state. **/
+    public BoardState toBoardState() {
+        BoardState bs = new BoardState(10, 10);
+        bs.setPieces(getPieces());
+        bs.setWhiteToMove(whiteToMove);
+        return bs;
+    }
+
+    /** @return a draughts state with the same position as this state. **/
+    public DraughtsState toDraughtsState() {
+        return new DraughtsState(toBoardState());
+    }
+
+    /**
+     * creates a state from a position in FEN notation of the Portable Draughts
+     * Notation, e.g. "W:W31-50:B1-20" for the initial position. The first
+     * letter is the player to move; pieces are listed per color as fields or
+     * ranges of fields, kings are prefixed with K.
+     * @param fen position in FEN notation
+     * @return the state
+     * @throws IllegalArgumentException if fen can not be parsed
+     */
+    public static BitboardState fromFEN(String fen) {
+        String[] parts = fen.trim().replace(".", "").split(":");
+        if (parts.length < 1 || !(parts[0].equals("W") || parts[0].equals("B"))) {
+            throw new IllegalArgumentException("bad FEN: " + fen);
+        }
+        int[] pieces = new int[51];
+        try {
+            for (int i = 1; i < parts.length; i++) {
+                if (parts[i].isEmpty()) continue;
+                boolean white = parts[i].charAt(0) == 'W';
+                if (!white && parts[i].charAt(0) != 'B') {
+                    throw new IllegalArgumentException("bad FEN: " + fen);
+                }
+                for (String item : parts[i].substring(1).split(",")) {
+                    if (item.isEmpty()) continue;
+                    boolean king = item.charAt(0) == 'K';
+                    String[] range = (king ? item.substring(1) : item).split("-");
+                    int first = Integer.parseInt(range[0]);
+                    int last = Integer.parseInt(range[range.length - 1]);
+                    for (int f = first; f <= last; f++) {
+                        pieces[f] = white ? (king ? DraughtsState.WHITEKING : DraughtsState.WHITEPIECE)
+                                          : (king ? DraughtsState.BLACKKING : DraughtsState.BLACKPIECE);
+                    }
+                }
+            }
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("bad FEN: " + fen, ex);
+        }
+        return new BitboardState(pieces, parts[0].equals("W"));
+    }
+
+    /** @return this position in FEN notation, see fromFEN(String) **/
+    public String toFEN() {
+        StringBuilder sb = new StringBuilder(whiteToMove ? "W" : "B");
+        for (int color = 0; color < 2; color++) {
+            long side = color == 0 ? white : black;
+            sb.append(color == 0 ? ":W" : ":B");
+            String separator = "";
+            for (long bb = side; bb != 0; bb &= bb - 1) {
+                int s = Long.numberOfTrailingZeros(bb);
+                sb.append(separator).append((kings & (1L << s)) != 0 ? "K" : "").append(s + 1);
+                separator = ",";
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toBoardState().toString() + "      w2m = " + isWhiteToMove();
+    }
+
+    @Override
+    public BitboardState clone() {
+        return new BitboardState(this);
+    }
+}
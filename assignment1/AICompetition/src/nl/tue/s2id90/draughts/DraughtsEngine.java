@@ -0,0 +1,235 @@
+package nl.tue.s2id90.draughts;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import nl.tue.s2id90.contest.PluginLoader;
+import nl.tue.s2id90.draughts.player.DraughtsPlayer;
+import nl.tue.s2id90.game.TimeControl;
+import org10x10.dam.game.Move;
+
+/**
+ * Runs a DraughtsPlayer as an engine for an ExternalPlayer, in its own
+ * process, and answers the commands of the protocol (see ExternalPlayer) on
+ * the standard input and output, or on a socket with -port.
+ * <pre>
+ * usage: DraughtsEngine [-port n] [-player name] class|pluginFolder...
+ * </pre>
+ * The player is created from the class of a DraughtsPlayer or a
+ * DraughtsPlayerProvider with a no-argument constructor, or is found in the
+ * plugin folders; -player chooses one by name when there are more. The
+ * search runs on its own thread, so that stop is handled during the search.
+ * Everything the player prints goes to the error output, because the
+ * standard output is the protocol.
+ * @author dennis
+ */
+public class DraughtsEngine {
+    private static final Logger LOG = Logger.getLogger(DraughtsEngine.class.getName());
+
+    private final DraughtsPlayer player;
+    private final DraughtsEngineCodec codec = new DraughtsEngineCodec();
+    private final ExecutorService searcher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "engine-search");
+        t.setDaemon(true);
+        return t;
+    });
+    private Future<?> search = null;    // the running search, if any
+    private DraughtsState state = new DraughtsState();
+
+    /** @param player player that searches the moves **/
+    public DraughtsEngine(DraughtsPlayer player) {
+        this.player = player;
+    }
+
+    /**
+     * @param args the command line arguments
+     * @throws IOException if the socket can not be opened
+     */
+    public static void main(String[] args) throws IOException {
+        // the standard output is reserved for the protocol
+        PrintStream protocol = System.out;
+        System.setOut(System.err);
+        int port = -1;
+        String name = null;
+        List<String> sources = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-port":   port = Integer.parseInt(args[++i]); break;
+                case "-player": name = args[++i]; break;
+                default:        sources.add(args[i]);
+            }
+        }
+        DraughtsPlayer player = sources.isEmpty() ? null : findPlayer(sources, name);
+        if (player == null) {
+            System.err.println("usage: DraughtsEngine [-port n] [-player name] class|pluginFolder...");
+            System.exit(1);
+        }
+        DraughtsEngine engine = new DraughtsEngine(player);
+        if (port < 0) {
+            engine.run(System.in, protocol);
+        } else {
+            try (ServerSocket server = new ServerSocket(port);
+                 Socket socket = server.accept()) {
+                socket.setTcpNoDelay(true);
+                engine.run(socket.getInputStream(), socket.getOutputStream());
+            }
+        }
+        System.exit(0);     // the player may have left threads running
+    }
+
+    // the player with the given name (or the first one) of the classes or plugin folders
+    private static DraughtsPlayer findPlayer(List<String> sources, String name) {
+        List<DraughtsPlayer> players = new ArrayList<>();
+        List<String> folders = new ArrayList<>();
+        for (String source : sources) {
+            if (new File(source).isDirectory()) {
+                folders.add(source);
+                continue;
+            }
+            try {
+                Object o = Class.forName(source).getConstructor().newInstance();
+                if (o instanceof DraughtsPlayer) {
+                    players.add((DraughtsPlayer) o);
+                } else if (o instanceof DraughtsPlayerProvider) {
+                    players.addAll(((DraughtsPlayerProvider) o).getPlayers());
+                }
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                LOG.log(Level.SEVERE, "no player in " + source, ex);
+            }
+        }
+        if (!folders.isEmpty()) {
+            List<DraughtsPlayerProvider> plugins = PluginLoader.getPlugins(folders.toArray(new String[0]),
+                    p -> (p instanceof DraughtsPlugin) && (p instanceof DraughtsPlayerProvider));
+            for (DraughtsPlayerProvider plugin : plugins) {
+                players.addAll(plugin.getPlayers());
+            }
+        }
+        for (DraughtsPlayer p : players) {
+            if (!p.isHuman() && (name == null || name.equals(p.getName()))) {
+                return p;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * answers the commands on in until quit or the end of the input.
+     * @param in commands
+     * @param out answers
+     * @throws IOException if in can not be read
+     */
+    public void run(InputStream in, OutputStream out) throws IOException {
+        BufferedReader commands = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        PrintWriter answers = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        send(answers, "id name " + player.getName());
+        for (String line = commands.readLine(); line != null; line = commands.readLine()) {
+            String[] words = line.trim().split("\\s+", 2);
+            String argument = words.length > 1 ? words[1] : "";
+            switch (words[0]) {
+                case "position":
+                    waitForSearch();
+                    try {
+                        state = codec.parsePosition(argument);
+                    } catch (IllegalArgumentException ex) {
+                        LOG.log(Level.WARNING, "bad position: {0}", argument);
+                    }
+                    break;
+                case "go":
+                    waitForSearch();
+                    go(argument, answers);
+                    break;
+                case "stop":
+                    if (search != null && !search.isDone()) {
+                        player.stop();
+                    }
+                    break;
+                case "newgame":
+                    waitForSearch();
+                    player.gameFinished();
+                    break;
+                case "quit":
+                    if (search != null && !search.isDone()) {
+                        player.stop();
+                    }
+                    waitForSearch();
+                    return;
+                default:
+                    LOG.log(Level.FINE, "unknown command: {0}", line);
+            }
+        }
+        waitForSearch();
+    }
+
+    // starts the search of state; argument is "soft hard" in ms, or "infinite"
+    private void go(String argument, PrintWriter answers) {
+        TimeControl tc = null;
+        if (!argument.equals("infinite")) {
+            String[] deadlines = argument.split("\\s+");
+            try {
+                long now = System.nanoTime();
+                long soft = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(deadlines[0]));
+                long hard = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(deadlines[deadlines.length - 1]));
+                tc = new TimeControl(now, now + soft, now + Math.max(soft, hard));
+            } catch (IllegalArgumentException ex) {
+                LOG.log(Level.WARNING, "bad go: {0}", argument);
+            }
+        }
+        final TimeControl timeControl = tc;
+        final DraughtsState s = state.clone();
+        search = searcher.submit(() -> {
+            Move m = null;
+            try {
+                if (timeControl != null) {
+                    player.setTimeControl(timeControl);
+                }
+                m = s.isEndState() ? null : player.getMove(s.clone());
+            } catch (RuntimeException ex) {
+                LOG.log(Level.SEVERE, "exception in player " + player.getName(), ex);
+            }
+            Integer value = player.getValue();
+            if (value != null) {
+                send(answers, "info value " + value);
+            }
+            send(answers, "bestmove " + (m == null ? "none" : codec.formatMove(m)));
+        });
+    }
+
+    private void waitForSearch() {
+        if (search == null) {
+            return;
+        }
+        try {
+            search.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            LOG.log(Level.SEVERE, "search failed", ex.getCause());
+        }
+        search = null;
+    }
+
+    private static void send(PrintWriter answers, String line) {
+        synchronized (answers) {
+            answers.println(line);
+            answers.flush();
+        }
+    }
+}
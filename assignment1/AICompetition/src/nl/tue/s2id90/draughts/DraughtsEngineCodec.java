@@ -0,0 +1,61 @@
+package nl.tue.s2id90.draughts;
+
+import nl.tue.s2id90.contest.EngineCodec;
+import org10x10.dam.game.Move;
+
+/**
+ * Text forms of draughts states and moves for the engine protocol of
+ * ExternalPlayer. A state is written in FEN notation (see
+ * BitboardState#toFEN()); a move as the fields it visits, separated by "-"
+ * for an ordinary move and by "x" for a capture, e.g. "32-28" or "19x30x39".
+ * @author dennis
+ */
+public class DraughtsEngineCodec implements EngineCodec<Move, DraughtsState> {
+
+    @Override
+    public String formatPosition(DraughtsState s) {
+        return new BitboardState(s).toFEN();
+    }
+
+    @Override
+    public DraughtsState parsePosition(String text) {
+        return BitboardState.fromFEN(text).toDraughtsState();
+    }
+
+    @Override
+    public String formatMove(Move m) {
+        String separator = m.isCapture() ? "x" : "-";
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < m.getFieldCount(); i++) {
+            sb.append(i == 0 ? "" : separator).append(m.getField(i));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * finds the legal move of s with this text form. For a capture it is
+     * enough to give the begin and end field, e.g. "19x39", unless other
+     * captures have the same begin and end field.
+     * @param text text form of a move
+     * @param s state in which the move is played
+     * @return the move, or null if s has no such move
+     */
+    @Override
+    public Move parseMove(String text, DraughtsState s) {
+        Move shortMatch = null;
+        int matches = 0;
+        for (Move m : s.getMoves()) {
+            String move = formatMove(m);
+            if (move.equals(text)) {
+                return m;
+            }
+            String separator = m.isCapture() ? "x" : "-";
+            if (text.equals(m.getBeginField() + separator + m.getEndField())
+                    && (shortMatch == null || !shortMatch.equals(m))) {
+                shortMatch = m;
+                matches++;
+            }
+        }
+        return matches == 1 ? shortMatch : null;
+    }
+}
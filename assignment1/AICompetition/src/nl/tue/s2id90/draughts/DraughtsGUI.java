@@ -11,9 +11,11 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 import nl.tue.s2id90.contest.GameGUI;
 import nl.tue.s2id90.contest.GameGuiListener;
+import nl.tue.s2id90.contest.StatisticsPanel;
 import nl.tue.s2id90.draughts.player.DraughtsPlayer;
 import nl.tue.s2id90.game.Game;
 import nl.tue.s2id90.game.Player;
+import nl.tue.s2id90.game.SearchStatistics;
 import org10x10.dam.game.BoardState;
 import org10x10.dam.game.Move;
 import org10x10.dam.game.MoveBoardListener;
@@ -40,6 +42,7 @@ public class DraughtsGUI
     private JMoveList moveList;
     private JLabel numberOfPiecesLabel;
     private JPanel settings;
+    private StatisticsPanel statisticsPanel;
     JCheckBox allowEditingCheckBox;
     JCheckBox beginStateCheckBox;
     SetupListener setUpListener;
@@ -124,11 +127,14 @@ public class DraughtsGUI
                 reset(currentGame,bs,true);
             });
             settings.add(swapButton);
+
+            statisticsPanel = new StatisticsPanel();
         }
         List<JComponent> panelList = new ArrayList<>();
         panelList.add(moveList);
         panelList.add(numberOfPiecesLabel);
         panelList.add(settings);
+        panelList.add(statisticsPanel);
         return panelList;
     }
 
@@ -305,6 +311,16 @@ public class DraughtsGUI
         animateMove(m);
         setHumanToMove(currentGame);
     }
+
+    @Override
+    public void onStatistics(Player<?, ?> p, SearchStatistics statistics) {
+        statisticsPanel.add(p, statistics);
+    }
+
+    @Override
+    public void onSearchProgress(Player<?, ?> p, SearchStatistics statistics) {
+        statisticsPanel.progress(p, statistics);
+    }
     
     @Override
     public  void onStopGame(Game g) {
@@ -315,6 +331,7 @@ public class DraughtsGUI
     @Override
     public  void onStartGame(Game g) {
         currentGame=g;
+        statisticsPanel.clear();
         reset(currentGame);
         setOptionsEnabled(false);
     }
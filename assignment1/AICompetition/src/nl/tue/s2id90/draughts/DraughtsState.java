@@ -1,8 +1,12 @@
 package nl.tue.s2id90.draughts;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import nl.tue.s2id90.game.CopyableState;
 import nl.tue.s2id90.game.GameState;
+import nl.tue.s2id90.game.HashableState;
 import org10x10.dam.game.BoardState;
 import org10x10.dam.game.Move;
 import org10x10.dam.game.MoveGenerator;
@@ -34,7 +38,7 @@ import org10x10.dam.game.MoveGeneratorFactory;
  * </pre></blockquote>
  * @author huub
  */
-public class DraughtsState implements GameState<Move> {
+public class DraughtsState implements HashableState<Move>, CopyableState<Move> {
     /**
      * Represents an empty field on a board.
      */
@@ -66,8 +70,13 @@ public class DraughtsState implements GameState<Move> {
     final public static int WHITEFIELD = 5;
     
     private final BoardState bs;
-    private final MoveGenerator moveGenerator = MoveGeneratorFactory.createMoveGeneratorInternational();
+    // The move generator of the library keeps its intermediate results in
+    // fields, so it can not be shared between threads; every thread has one
+    // for all its states, instead of every state having its own.
+    private static final ThreadLocal<MoveGenerator> MOVE_GENERATOR =
+            ThreadLocal.withInitial(MoveGeneratorFactory::createMoveGeneratorInternational);
     private List<Move> moves=null;
+    private long hash;      // Zobrist key, equal to the key of a BitboardState
     
     /**
      * creates an initial  draughts state.
@@ -75,16 +84,28 @@ public class DraughtsState implements GameState<Move> {
     public DraughtsState() {
         bs = new BoardState(10,10);
         bs.setBegin();
+        hash = computeHashKey();
     }
     
     private DraughtsState(DraughtsState ds) {
-        this(ds.bs);
+        this.bs = (BoardState) ds.bs.clone();
+        this.hash = ds.hash;
     }
     
     /** creates a draughts state with a copy of the given BoardState. **/
     DraughtsState(BoardState bs) {
         this.bs = (BoardState) bs.clone();
+        hash = computeHashKey();
     }  
+
+    // computes the Zobrist key of this position from scratch
+    private long computeHashKey() {
+        long h = bs.isWhiteToMove() ? 0 : BitboardState.ZOBRIST_BLACK_TO_MOVE;
+        for (int f=1; f<=50; f++) {
+            h ^= BitboardState.ZOBRIST[bs.getPiece(f)][f-1];   // ZOBRIST[EMPTY] is all zero
+        }
+        return h;
+    }
     
     /**
      *
@@ -93,7 +114,7 @@ public class DraughtsState implements GameState<Move> {
     @Override
     public List<Move> getMoves() {
         if (moves==null)
-            return moves=new ArrayList(moveGenerator.generateMoves(bs));
+            return moves=new ArrayList<>(MOVE_GENERATOR.get().generateMoves(bs));
         return moves;
     }
 
@@ -103,9 +124,31 @@ public class DraughtsState implements GameState<Move> {
      */
     @Override
     public boolean isEndState() {
-        if (moves==null)
-            moves = new ArrayList(moveGenerator.generateMoves(bs));
-        return moves.isEmpty();
+        return !hasMoves();
+    }
+
+    /**
+     * tells whether the player to move has a legal move. Uses the cached
+     * moves of getMoves() if there are any, and otherwise stops at the first
+     * piece that can move, without generating the moves.
+     * @return whether or not there is a legal move
+     */
+    @Override
+    public boolean hasMoves() {
+        if (moves!=null)
+            return !moves.isEmpty();
+        long white=0, black=0, kings=0;
+        for (int f=1; f<=50; f++) {
+            long bit = 1L<<(f-1);
+            switch (bs.getPiece(f)) {
+                case WHITEKING: kings|=bit; white|=bit; break;
+                case WHITEPIECE: white|=bit; break;
+                case BLACKKING: kings|=bit; black|=bit; break;
+                case BLACKPIECE: black|=bit; break;
+            }
+        }
+        boolean w = bs.isWhiteToMove();
+        return BitboardMoveGenerator.hasMoves(w ? white : black, w ? black : white, kings, w);
     }
 
     /**
@@ -116,6 +159,7 @@ public class DraughtsState implements GameState<Move> {
     public void doMove(Move m) {
         moves = null;      // invalidate moves
         bs.moveForward(m);
+        hash ^= BitboardState.hashDelta(m);
     }
 
     /**
@@ -126,6 +170,99 @@ public class DraughtsState implements GameState<Move> {
     public void undoMove(Move m) {
         moves=null;             // invalidate cached moves
         bs.moveBackward(m);
+        hash ^= BitboardState.hashDelta(m);
+    }
+
+    /** undo information of doMove(Move, Undo): the move and the cached moves. **/
+    private static final class UndoRecord implements Undo<Move> {
+        private Move move;
+        private List<Move> moves;
+
+        @Override
+        public Move getMove() {
+            return move;
+        }
+    }
+
+    /**
+     * applies move m and returns the information to undo it; undoMove(Undo)
+     * restores the cached moves of this state, so they are not generated again.
+     * @param m move to be applied
+     * @param reuse undo information to reuse, or null
+     * @return undo information
+     */
+    @Override
+    public Undo<Move> doMove(Move m, Undo<Move> reuse) {
+        UndoRecord undo = reuse instanceof UndoRecord ? (UndoRecord) reuse : new UndoRecord();
+        undo.move = m;
+        undo.moves = moves;
+        doMove(m);
+        return undo;
+    }
+
+    @Override
+    public void undoMove(Undo<Move> undo) {
+        undoMove(undo.getMove());
+        if (undo instanceof UndoRecord)
+            moves = ((UndoRecord) undo).moves;
+    }
+
+    /**
+     * returns a 64 bit Zobrist key of this position, which is updated
+     * incrementally by doMove and undoMove. It is equal to the key of a
+     * BitboardState with the same position.
+     * @return hash key of this state
+     */
+    @Override
+    public long hashKey() {
+        return hash;
+    }
+
+    /**
+     * @return the number of legal moves; captures that only differ in the
+     * order in which the pieces are taken are counted once
+     */
+    @Override
+    public int moveCount() {
+        List<Move> list = getMoves();
+        if (list.isEmpty() || list.get(0).getCaptureCount()==0)
+            return list.size();     // only captures are listed more than once
+        // Move.equals() compares the begin and end field and the set of
+        // captured fields, which fit in one key: 6 + 6 + 50 bits
+        Set<Long> keys = new HashSet<>();
+        for (Move m : list) {
+            long key = (long) m.getBeginField() << 56 | (long) m.getEndField() << 50;
+            for (int i=0; i<m.getCaptureCount(); i++)
+                key |= 1L << (m.getCapturedField(i) - 1);
+            keys.add(key);
+        }
+        return keys.size();
+    }
+
+    /**
+     * makes target equal to this state without allocating.
+     * @param target a DraughtsState
+     * @see #copyFrom(DraughtsState)
+     */
+    @Override
+    public void copyInto(GameState<Move> target) {
+        if (!(target instanceof DraughtsState))
+            throw new IllegalArgumentException("target is not a DraughtsState");
+        ((DraughtsState) target).copyFrom(this);
+    }
+
+    /**
+     * makes this state equal to source, reusing the board of this state
+     * instead of allocating a new one as clone() does.
+     * @param source state to copy
+     * @see DraughtsStatePool
+     */
+    public void copyFrom(DraughtsState source) {
+        moves = null;     // invalidate cached moves
+        for (int f=1; f<=50; f++)
+            bs.setPiece(f, source.bs.getPiece(f));
+        bs.setWhiteToMove(source.bs.isWhiteToMove());
+        hash = source.hash;
     }
     
     /**
@@ -187,6 +324,7 @@ public class DraughtsState implements GameState<Move> {
     public void reset() {
         moves=null;       // invalidate cached moves
         bs.setBegin();
+        hash = computeHashKey();
     }
 
     @Override
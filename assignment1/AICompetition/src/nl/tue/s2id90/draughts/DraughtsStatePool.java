@@ -0,0 +1,51 @@
+package nl.tue.s2id90.draughts;
+
+import java.util.Arrays;
+
+/**
+ * A pool of DraughtsStates for searches that copy the state for every move
+ * they try. acquire() hands out a pooled state made equal to a source state
+ * with DraughtsState#copyFrom, and release() takes it back, so after warming
+ * up no states are allocated at all.
+ *
+ * A pool is not thread safe: a parallel engine gives every search thread its
+ * own pool. A state must not be used after it is released.
+ * @author dennis
+ */
+public final class DraughtsStatePool {
+    private DraughtsState[] free = new DraughtsState[64];
+    private int size = 0;       // number of states in free
+    private long created = 0;   // number of states allocated by this pool
+
+    /**
+     * returns a state equal to source.
+     * @param source state to copy
+     * @return a pooled copy of source
+     */
+    public DraughtsState acquire(DraughtsState source) {
+        if (size == 0) {
+            created++;
+            return source.clone();
+        }
+        DraughtsState s = free[--size];
+        free[size] = null;
+        s.copyFrom(source);
+        return s;
+    }
+
+    /**
+     * returns a state to the pool.
+     * @param s state from acquire() that is no longer used
+     */
+    public void release(DraughtsState s) {
+        if (size == free.length) {
+            free = Arrays.copyOf(free, 2 * size);
+        }
+        free[size++] = s;
+    }
+
+    /** @return number of states that this pool had to allocate **/
+    public long getCreatedCount() {
+        return created;
+    }
+}
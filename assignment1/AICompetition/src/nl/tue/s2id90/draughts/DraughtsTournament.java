@@ -0,0 +1,152 @@
+package nl.tue.s2id90.draughts;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import nl.tue.s2id90.contest.Competition;
+import nl.tue.s2id90.contest.PluginLoader;
+import nl.tue.s2id90.contest.TournamentCoordinator;
+import nl.tue.s2id90.contest.TournamentRunner;
+import nl.tue.s2id90.contest.TournamentWorker;
+import nl.tue.s2id90.draughts.player.DraughtsPlayer;
+import nl.tue.s2id90.game.Game;
+import nl.tue.s2id90.game.Player;
+import org10x10.dam.game.Move;
+
+/**
+ * Plays a full competition between all computer players found in the plugin
+ * folders, without a GUI.
+ * <pre>
+ * usage: DraughtsTournament [-threads n] [-time seconds] [-moves n] [-out file]
+ *                           [-stats file.csv|file.json] [-engine "command"]...
+ *                           [-serve port [-progress file] [-timeout seconds]]
+ *                           [-worker host:port] pluginFolder...
+ * </pre>
+ * With -stats the search statistics of every move are written to a file, as
+ * JSON (one object per line) if its name ends with .json and as CSV otherwise.
+ * Every -engine adds a player that runs in its own process, started with the
+ * given command line (e.g. "java -cp ... nl.tue.s2id90.draughts.DraughtsEngine
+ * pluginFolder"); see ExternalPlayer.
+ * <p>
+ * With -serve the games are not played here but handed out to workers that
+ * connect to the port, and are started with -worker host:port and the same
+ * players; each worker plays -threads games at a time with its own -time
+ * and -moves. The results are appended to the -progress file, and a
+ * coordinator that is started again with it only plays the missing games.
+ * A game that a worker has not finished after -timeout seconds is handed
+ * to another worker. See TournamentCoordinator.
+ * @author huub
+ */
+public class DraughtsTournament {
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int time = 2;
+    private int moves = 200;
+    private String out = null;
+    private String stats = null;
+    private int serve = -1;             // port of the coordinator, -1 if this is not one
+    private String progress = null;     // progress file of the coordinator
+    private int timeout = 0;            // game timeout of the coordinator in seconds
+    private String worker = null;       // host:port of the coordinator of this worker
+    // new instances of the players of the plugins, see TournamentRunner#setPlayerFactory
+    private final Map<Player<Move, DraughtsState>, Supplier<DraughtsPlayer>> factories
+            = new IdentityHashMap<>();
+
+    /**
+     * @param args the command line arguments
+     * @throws IOException if an output file can not be created or an engine
+     * can not be started
+     */
+    public static void main(String[] args) throws IOException {
+        DraughtsTournament t = new DraughtsTournament();
+        List<String> folders = new ArrayList<>();
+        List<String> engines = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-threads": t.threads = Integer.parseInt(args[++i]); break;
+                case "-time":    t.time = Integer.parseInt(args[++i]); break;
+                case "-moves":   t.moves = Integer.parseInt(args[++i]); break;
+                case "-out":     t.out = args[++i]; break;
+                case "-stats":   t.stats = args[++i]; break;
+                case "-engine":  engines.add(args[++i]); break;
+                case "-serve":   t.serve = Integer.parseInt(args[++i]); break;
+                case "-progress": t.progress = args[++i]; break;
+                case "-timeout": t.timeout = Integer.parseInt(args[++i]); break;
+                case "-worker":  t.worker = args[++i]; break;
+                default:         folders.add(args[i]);
+            }
+        }
+
+        List<DraughtsPlayerProvider> plugins = PluginLoader.getPlugins(folders.toArray(new String[0]),
+                p->(p instanceof DraughtsPlugin)&& (p instanceof DraughtsPlayerProvider));
+        List<DraughtsPlayer> players = new ArrayList<>();
+        for (DraughtsPlayerProvider plugin : plugins) {
+            List<DraughtsPlayer> pluginPlayers = plugin.getPlayers();
+            for (int i = 0; i < pluginPlayers.size(); i++) {
+                DraughtsPlayer player = pluginPlayers.get(i);
+                if (!player.isHuman()) {
+                    players.add(player);
+                    // every game gets new players of the plugin, with its settings
+                    final int index = i;
+                    t.factories.put(player, () -> {
+                        List<DraughtsPlayer> fresh = plugin.newPlayers();
+                        return fresh == null ? null : fresh.get(index);
+                    });
+                }
+            }
+        }
+        List<ExternalDraughtsPlayer> externals = new ArrayList<>();
+        try {
+            for (String engine : engines) {
+                ExternalDraughtsPlayer external
+                        = ExternalDraughtsPlayer.start(Arrays.asList(engine.trim().split("\\s+")));
+                externals.add(external);
+                players.add(external);
+            }
+            t.play(players);
+        } finally {
+            externals.forEach(ExternalDraughtsPlayer::close);
+        }
+    }
+
+    private void play(List<DraughtsPlayer> players) throws IOException {
+        List<Game> schedule = new Competition(players).createSchedule();
+        if (serve >= 0) {
+            TournamentCoordinator coordinator
+                    = new TournamentCoordinator(schedule, progress == null ? null : new File(progress));
+            coordinator.setGameTimeout(timeout);
+            coordinator.play(serve);
+        } else {
+            TournamentRunner<Move, DraughtsState> runner
+                    = new TournamentRunner<>(DraughtsState::new, threads, time, moves);
+            runner.setPlayerFactory(p -> {
+                Supplier<DraughtsPlayer> factory = factories.get(p);
+                return factory == null ? null : factory.get();
+            });
+            try (PrintStream ps = stats == null ? null : new PrintStream(stats)) {
+                runner.setStatisticsOutput(ps, stats != null && stats.endsWith(".json"));
+                if (worker != null) {
+                    int colon = worker.lastIndexOf(':');
+                    new TournamentWorker<>(runner, players).play(worker.substring(0, colon),
+                            Integer.parseInt(worker.substring(colon + 1)), threads);
+                    return;     // the coordinator keeps the standings
+                }
+                runner.play(schedule);
+            }
+        }
+
+        TournamentRunner.printStandings(System.out, schedule);
+        if (out != null) {
+            try (PrintStream ps = new PrintStream(out)) {
+                TournamentRunner.printResults(ps, schedule);
+                ps.println();
+                TournamentRunner.printStandings(ps, schedule);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package nl.tue.s2id90.draughts;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import nl.tue.s2id90.contest.ExternalPlayer;
+import nl.tue.s2id90.draughts.player.DraughtsPlayer;
+import nl.tue.s2id90.game.TimeControl;
+import org10x10.dam.game.Move;
+
+/**
+ * A draughts player that runs in another process, for instance a
+ * DraughtsEngine in its own JVM; see ExternalPlayer for the protocol.
+ * @author dennis
+ */
+public class ExternalDraughtsPlayer extends DraughtsPlayer implements Closeable {
+    private final ExternalPlayer<Move, DraughtsState> engine;
+
+    private ExternalDraughtsPlayer(ExternalPlayer<Move, DraughtsState> engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * starts an engine process.
+     * @param command command line of the engine
+     * @return player that drives the engine
+     * @throws IOException if the engine can not be started
+     */
+    public static ExternalDraughtsPlayer start(List<String> command) throws IOException {
+        return new ExternalDraughtsPlayer(ExternalPlayer.start(new DraughtsEngineCodec(), command));
+    }
+
+    /**
+     * connects to an engine that listens on a socket.
+     * @param host host of the engine
+     * @param port port of the engine
+     * @return player that drives the engine
+     * @throws IOException if there is no connection
+     */
+    public static ExternalDraughtsPlayer connect(String host, int port) throws IOException {
+        return new ExternalDraughtsPlayer(ExternalPlayer.connect(new DraughtsEngineCodec(), host, port));
+    }
+
+    @Override
+    public Move getMove(DraughtsState s) {
+        return engine.getMove(s);
+    }
+
+    @Override
+    public void setTimeControl(TimeControl timeControl) {
+        engine.setTimeControl(timeControl);
+    }
+
+    @Override
+    public Integer getValue() {
+        return engine.getValue();
+    }
+
+    @Override
+    public void stop() {
+        engine.stop();
+    }
+
+    @Override
+    public void gameFinished() {
+        engine.gameFinished();
+    }
+
+    @Override
+    public String getName() {
+        return engine.getName();
+    }
+
+    @Override
+    public void close() {
+        engine.close();
+    }
+}
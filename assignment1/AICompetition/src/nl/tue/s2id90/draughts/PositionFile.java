@@ -0,0 +1,201 @@
+package nl.tue.s2id90.draughts;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file of draughts positions with fixed-width records, for benchmarks,
+ * tuning and test suites. The file holds a 16 byte header (magic, record
+ * size, 8 reserved bytes) followed by records of 32 bytes:
+ * <pre>
+ *  0  long  white pieces (bit f-1 is field f)
+ *  8  long  black pieces
+ * 16  long  kings of both colors
+ * 24  int   score for white, or NO_SCORE
+ * 28  byte  flags: WHITE_TO_MOVE
+ * 29  byte  result: WHITE_WINS, DRAW, BLACK_WINS or NO_RESULT
+ * 30  short reserved
+ * </pre>
+ * Files are written by PositionWriter.
+ *
+ * The file is memory mapped, in segments of at most 1 GB so that files of
+ * any size can be read. A Cursor iterates over a range of records without
+ * allocating anything per record; it can be split into two cursors over
+ * halves of its range, so that parallel consumers each get their own part
+ * of the file.
+ * @author dennis
+ */
+public final class PositionFile {
+    static final int MAGIC = 0x44505331;    // "DPS1"
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 32;
+
+    /** flag of a record in which white is to move. **/
+    public static final int WHITE_TO_MOVE = 1;
+    /** score of a record without score. **/
+    public static final int NO_SCORE = Integer.MIN_VALUE;
+    /** results of a game, as twice the score of white. **/
+    public static final int BLACK_WINS = 0, DRAW = 1, WHITE_WINS = 2;
+    /** result of a record without result. **/
+    public static final int NO_RESULT = -1;
+
+    private static final int SEGMENT_RECORDS = 1 << 25;  // 1 GB
+    private final ByteBuffer[] segments;
+    private final long size;
+
+    /**
+     * maps a position file.
+     * @param file position file
+     * @throws IOException if the file can not be read or is not a position file
+     */
+    public PositionFile(Path file) throws IOException {
+        if (!hasHeader(file)) {
+            throw new IOException("not a position file: " + file);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // a partly written record at the end is ignored
+            size = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+            segments = new ByteBuffer[(int) ((size + SEGMENT_RECORDS - 1) / SEGMENT_RECORDS)];
+            for (int i = 0; i < segments.length; i++) {
+                long records = Math.min(SEGMENT_RECORDS, size - (long) i * SEGMENT_RECORDS);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + (long) i * SEGMENT_RECORDS * RECORD_SIZE, records * RECORD_SIZE);
+            }
+        }
+    }
+
+    // whether or not file starts with the header of a position file
+    static boolean hasHeader(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            DataInputStream data = new DataInputStream(in);
+            return Files.size(file) >= HEADER_SIZE && data.readInt() == MAGIC && data.readInt() == RECORD_SIZE;
+        }
+    }
+
+    /** @return number of records **/
+    public long size() {
+        return size;
+    }
+
+    /** @return a cursor over all records **/
+    public Cursor cursor() {
+        return new Cursor(0, size);
+    }
+
+    /**
+     * @param from index of the first record
+     * @param to index after the last record
+     * @return a cursor over records from .. to-1
+     */
+    public Cursor cursor(long from, long to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException(from + ".." + to + " of " + size);
+        }
+        return new Cursor(from, to);
+    }
+
+    /**
+     * Iterates over a range of records: next() moves to the next record, and
+     * the getters return the fields of the current record. A cursor is used
+     * by one thread; other threads get their own cursor from trySplit().
+     */
+    public final class Cursor {
+        private long next;      // index of the next record
+        private long end;       // index after the last record
+        private ByteBuffer segment;
+        private int offset;     // offset of the current record in segment
+
+        private Cursor(long from, long to) {
+            next = from;
+            end = to;
+        }
+
+        /**
+         * moves to the next record.
+         * @return false if there is no next record
+         */
+        public boolean next() {
+            if (next >= end) {
+                return false;
+            }
+            segment = segments[(int) (next / SEGMENT_RECORDS)];
+            offset = (int) (next % SEGMENT_RECORDS) * RECORD_SIZE;
+            next++;
+            return true;
+        }
+
+        /**
+         * splits off the first half of the remaining records.
+         * @return a cursor over the first half of the remaining records, which
+         * this cursor will skip, or null if fewer than two records remain
+         */
+        public Cursor trySplit() {
+            long mid = (next + end) >>> 1;
+            if (mid == next) {
+                return null;
+            }
+            Cursor prefix = new Cursor(next, mid);
+            next = mid;
+            return prefix;
+        }
+
+        /** @return number of records that next() will still visit **/
+        public long remaining() {
+            return end - next;
+        }
+
+        /** @return index of the current record **/
+        public long index() {
+            return next - 1;
+        }
+
+        /** @return white men of the current record **/
+        public long getWhiteMen() {
+            return segment.getLong(offset) & ~segment.getLong(offset + 16);
+        }
+
+        /** @return white kings of the current record **/
+        public long getWhiteKings() {
+            return segment.getLong(offset) & segment.getLong(offset + 16);
+        }
+
+        /** @return black men of the current record **/
+        public long getBlackMen() {
+            return segment.getLong(offset + 8) & ~segment.getLong(offset + 16);
+        }
+
+        /** @return black kings of the current record **/
+        public long getBlackKings() {
+            return segment.getLong(offset + 8) & segment.getLong(offset + 16);
+        }
+
+        /** @return whether or not white is to move in the current record **/
+        public boolean isWhiteToMove() {
+            return (segment.get(offset + 28) & WHITE_TO_MOVE) != 0;
+        }
+
+        /** @return score for white of the current record, or NO_SCORE **/
+        public int getScore() {
+            return segment.getInt(offset + 24);
+        }
+
+        /** @return result of the current record, or NO_RESULT **/
+        public int getResult() {
+            return segment.get(offset + 29);
+        }
+
+        /**
+         * sets s to the position of the current record, without allocating.
+         * @param s state
+         */
+        public void get(BitboardState s) {
+            s.setPosition(getWhiteMen(), getWhiteKings(), getBlackMen(), getBlackKings(), isWhiteToMove());
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package nl.tue.s2id90.draughts;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org10x10.dam.game.Move;
+
+/**
+ * Appends positions to a position file, see PositionFile for the format. A
+ * new file gets a header; an existing file is extended. Positions can be
+ * written one at a time, with a score and a result, or as all positions of a
+ * game played through a DraughtsState, labelled with the result of the game.
+ * @author dennis
+ */
+public class PositionWriter implements Closeable {
+    private final DataOutputStream out;
+    private long count = 0;
+
+    /**
+     * opens file for appending; creates it if it does not exist.
+     * @param file position file
+     * @throws IOException if the file can not be written or is not a position file
+     */
+    public PositionWriter(Path file) throws IOException {
+        long size = Files.exists(file) ? Files.size(file) : 0;
+        if (size > 0 && !PositionFile.hasHeader(file)) {
+            throw new IOException("not a position file: " + file);
+        }
+        if (size > PositionFile.HEADER_SIZE && (size - PositionFile.HEADER_SIZE) % PositionFile.RECORD_SIZE != 0) {
+            // an interrupted write left part of a record; overwrite it
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(size - (size - PositionFile.HEADER_SIZE) % PositionFile.RECORD_SIZE);
+            }
+        }
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+        if (size == 0) {
+            out.writeInt(PositionFile.MAGIC);
+            out.writeInt(PositionFile.RECORD_SIZE);
+            out.writeLong(0);   // reserved
+        }
+    }
+
+    /**
+     * appends a position.
+     * @param whiteMen white men
+     * @param whiteKings white kings
+     * @param blackMen black men
+     * @param blackKings black kings
+     * @param whiteToMove whether or not white is to move
+     * @param score score of the position for white, or PositionFile.NO_SCORE
+     * @param result PositionFile.WHITE_WINS, DRAW, BLACK_WINS or NO_RESULT
+     * @throws IOException if the position can not be written
+     */
+    public void write(long whiteMen, long whiteKings, long blackMen, long blackKings,
+                      boolean whiteToMove, int score, int result) throws IOException {
+        out.writeLong(whiteMen | whiteKings);
+        out.writeLong(blackMen | blackKings);
+        out.writeLong(whiteKings | blackKings);
+        out.writeInt(score);
+        out.writeByte(whiteToMove ? PositionFile.WHITE_TO_MOVE : 0);
+        out.writeByte(result);
+        out.writeShort(0);  // reserved
+        count++;
+    }
+
+    /**
+     * appends the position of s.
+     * @param s state
+     * @param score score of the position for white, or PositionFile.NO_SCORE
+     * @param result PositionFile.WHITE_WINS, DRAW, BLACK_WINS or NO_RESULT
+     * @throws IOException if the position can not be written
+     */
+    public void write(BitboardState s, int score, int result) throws IOException {
+        write(s.getWhiteMen(), s.getWhiteKings(), s.getBlackMen(), s.getBlackKings(),
+                s.isWhiteToMove(), score, result);
+    }
+
+    /**
+     * appends the position of ds.
+     * @param ds state
+     * @param score score of the position for white, or PositionFile.NO_SCORE
+     * @param result PositionFile.WHITE_WINS, DRAW, BLACK_WINS or NO_RESULT
+     * @throws IOException if the position can not be written
+     */
+    public void write(DraughtsState ds, int score, int result) throws IOException {
+        long whiteMen = 0, whiteKings = 0, blackMen = 0, blackKings = 0;
+        for (int f = 1; f <= 50; f++) {
+            long bit = 1L << (f - 1);
+            switch (ds.getPiece(f)) {
+                case DraughtsState.WHITEPIECE: whiteMen |= bit; break;
+                case DraughtsState.WHITEKING:  whiteKings |= bit; break;
+                case DraughtsState.BLACKPIECE: blackMen |= bit; break;
+                case DraughtsState.BLACKKING:  blackKings |= bit; break;
+                default: break;
+            }
+        }
+        write(whiteMen, whiteKings, blackMen, blackKings, ds.isWhiteToMove(), score, result);
+    }
+
+    /**
+     * appends every position of a game: start, and the position after each
+     * of the moves, all labelled with result.
+     * @param start start position of the game; it is not changed
+     * @param moves moves of the game
+     * @param result PositionFile.WHITE_WINS, DRAW, BLACK_WINS or NO_RESULT
+     * @throws IOException if the positions can not be written
+     */
+    public void writeGame(DraughtsState start, List<Move> moves, int result) throws IOException {
+        DraughtsState ds = start.clone();
+        write(ds, PositionFile.NO_SCORE, result);
+        for (Move m : moves) {
+            ds.doMove(m);
+            write(ds, PositionFile.NO_SCORE, result);
+        }
+    }
+
+    /** @return number of positions written by this writer **/
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * writes buffered positions to the file.
+     * @throws IOException if the positions can not be written
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,18 @@
+package nl.tue.s2id90.game;
+
+/**
+ * A game state that can be copied into an existing state, so that a search
+ * can reuse states instead of cloning them. This is optional: a search
+ * checks whether its state is a CopyableState and uses clone() otherwise.
+ * @author huub
+ * @param <Move>
+ */
+public interface CopyableState<Move> extends GameState<Move> {
+
+    /**
+     * makes target equal to this state without allocating.
+     * @param target state of the same class as this state
+     * @throws IllegalArgumentException if target is of another class
+     */
+    void copyInto(GameState<Move> target);
+}
@@ -8,7 +8,7 @@ import nl.tue.win.util.Pair;
  */
 public class Game extends Pair<Player,Player> {
     public enum Result {
-        WHITE_WINS(0,2), DRAW(1,1), BLACK_WINS(0,2), UNKNOWN(0,0);
+        WHITE_WINS(2,0), DRAW(1,1), BLACK_WINS(0,2), UNKNOWN(0,0);
           private int w, b;
           private Result(int w, int b) {
               this.w = w; this.b = b;
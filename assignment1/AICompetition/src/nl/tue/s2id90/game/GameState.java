@@ -3,7 +3,9 @@ package nl.tue.s2id90.game;
 import java.util.List;
 
 /**
- * class that keeps the state information of a Game.
+ * class that keeps the state information of a Game. States that have a hash
+ * key or can be copied without allocating also implement HashableState or
+ * CopyableState.
  * @author huub
  * @param <Move>
  */
@@ -15,9 +17,21 @@ public interface GameState<Move> {
     List<Move> getMoves();
 
     /**
+     * @return whether or not there are no valid moves in this state
+     */
+    default boolean isEndState() {
+        return !hasMoves();
+    }
+
+    /**
+     * tells whether there is a valid move in this state. Implementations
+     * should stop at the first valid move they find instead of generating
+     * all moves, and use the moves of getMoves() if they are cached.
      * @return whether or not there are any valid moves in this state
      */
-    boolean isEndState();
+    default boolean hasMoves() {
+        return !getMoves().isEmpty();
+    }
 
     /**
      * applies move m in this state.
@@ -31,6 +45,49 @@ public interface GameState<Move> {
      */
     void undoMove(Move m);
 
+    /**
+     * Undo information of a move, returned by doMove(Move, Undo). A state
+     * can keep what it needs to undo the move quickly in it, e.g. its hash
+     * key and its cached moves, so that undoMove(Undo) does not have to
+     * recompute them.
+     * @param <Move> type of moves
+     */
+    interface Undo<Move> {
+        /** @return the move that was done **/
+        Move getMove();
+    }
+
+    /**
+     * applies move m in this state and returns the information to undo it.
+     * The returned object is only valid until it is passed to doMove again,
+     * so a search can keep one per ply and never allocate.
+     * @param m move to be applied
+     * @param reuse undo information of an earlier move that may be reused,
+     * or null
+     * @return undo information for undoMove(Undo)
+     */
+    default Undo<Move> doMove(Move m, Undo<Move> reuse) {
+        doMove(m);
+        return () -> m;
+    }
+
+    /**
+     * undoes the move of undo, which must be the last move done in this state.
+     * @param undo undo information returned by doMove(Move, Undo)
+     */
+    default void undoMove(Undo<Move> undo) {
+        undoMove(undo.getMove());
+    }
+
+    /**
+     * @return the number of valid moves in this state; moves that lead to
+     * the same state (captures that only differ in the order in which the
+     * pieces are taken) may be counted once
+     */
+    default int moveCount() {
+        return getMoves().size();
+    }
+
     /**
      *
      * @return whether or not the white player is to move.
@@ -47,4 +104,22 @@ public interface GameState<Move> {
      * @return a clone of this state.
      */
     GameState<Move> clone();
+
+    /**
+     * returns a copy of state: state copied into target if state is a
+     * CopyableState and target is of the same class, a clone otherwise.
+     * @param <M> type of moves
+     * @param <S> type of state; clone() of a state returns its own class
+     * @param state state to copy
+     * @param target state that may be overwritten, or null for a clone
+     * @return target or a clone of state
+     */
+    @SuppressWarnings("unchecked")
+    static <M, S extends GameState<M>> S copy(S state, S target) {
+        if (state instanceof CopyableState && target != null && target.getClass() == state.getClass()) {
+            ((CopyableState<M>) state).copyInto(target);
+            return target;
+        }
+        return (S) state.clone();
+    }
 }
\ No newline at end of file
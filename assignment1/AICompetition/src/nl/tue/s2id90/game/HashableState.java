@@ -0,0 +1,18 @@
+package nl.tue.s2id90.game;
+
+/**
+ * A game state with a hash key, for instance for a transposition table.
+ * This is optional: a search that needs keys checks whether its state is
+ * a HashableState.
+ * @author huub
+ * @param <Move>
+ */
+public interface HashableState<Move> extends GameState<Move> {
+
+    /**
+     * returns a 64 bit hash key of this state. States that are equal have
+     * equal keys; implementations keep the key up to date incrementally.
+     * @return hash key of this state
+     */
+    long hashKey();
+}
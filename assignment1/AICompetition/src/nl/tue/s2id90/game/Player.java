@@ -1,5 +1,6 @@
 package nl.tue.s2id90.game;
 
+import java.util.function.Consumer;
 import nl.tue.s2id90.contest.util.Identity;
 
 /**
@@ -27,6 +28,46 @@ public interface Player<Move,State extends GameState<Move>>  extends Identity
      * return a value in getMove().
      */
     void stop();
+
+    /** called just before getMove() when the thinking time for the move is
+     * limited. A player that checks the deadlines itself can finish its
+     * search in time without waiting for stop(), which is still called when
+     * the time limit has passed. This implementation ignores the deadlines.
+     * @param timeControl deadlines for the next call of getMove()
+     */
+    default void setTimeControl(TimeControl timeControl) {
+    }
+
+    /** called after every move of a game of this player, by either player,
+     * so the player can for instance think on the time of its opponent
+     * (pondering). This implementation does nothing.
+     * @param m the move that was played
+     * @param s copy of the state after m
+     */
+    default void movePlayed(Move m, State s) {
+    }
+
+    /** called when a game of this player has finished or was stopped; the
+     * player should stop any work for that game. This implementation does
+     * nothing.
+     */
+    default void gameFinished() {
+    }
+
+    /** @return statistics of the search of the last call of getMove(), or
+     * null if the player does not keep them. This implementation returns null.
+     */
+    default SearchStatistics getStatistics() {
+        return null;
+    }
+
+    /** asks the player to report the statistics of its search so far after
+     * every iteration of the search, on the thread that calls getMove().
+     * This implementation ignores the listener.
+     * @param listener receives the statistics; null stops the reports
+     */
+    default void setStatisticsListener(Consumer<SearchStatistics> listener) {
+    }
     
     /** @return whether or not this is a human player **/
     boolean isHuman();
@@ -0,0 +1,184 @@
+package nl.tue.s2id90.game;
+
+import java.util.Locale;
+
+/**
+ * What a computer player did to find a move: the depth it reached, the nodes
+ * it searched, how well the search was ordered and the time it took. Players
+ * report these after every move, see Player#getStatistics(), and optionally
+ * after every iteration of the search, see Player#setStatisticsListener().
+ * Counts that a player does not keep are 0. Instances are immutable and are
+ * made with a Builder.
+ * @author huub
+ */
+public final class SearchStatistics {
+    /** the column names of toCSV(). **/
+    public static final String CSV_HEADER = "depth,nodes,qnodes,timeMillis,nps,ebf,"
+            + "cutoffs,firstMoveCutoffs,ttProbes,ttHits,score";
+
+    private final int depth;
+    private final long nodes;
+    private final long quiescenceNodes;
+    private final long timeNanos;
+    private final long cutoffs;
+    private final long firstMoveCutoffs;
+    private final long ttProbes;
+    private final long ttHits;
+    private final int score;
+
+    private SearchStatistics(Builder b) {
+        depth = b.depth;
+        nodes = b.nodes;
+        quiescenceNodes = b.quiescenceNodes;
+        timeNanos = b.timeNanos;
+        cutoffs = b.cutoffs;
+        firstMoveCutoffs = b.firstMoveCutoffs;
+        ttProbes = b.ttProbes;
+        ttHits = b.ttHits;
+        score = b.score;
+    }
+
+    /** @return depth of the last completed iteration of the search **/
+    public int getDepth() {
+        return depth;
+    }
+
+    /** @return number of nodes of the main search **/
+    public long getNodes() {
+        return nodes;
+    }
+
+    /** @return number of nodes of the quiescence search **/
+    public long getQuiescenceNodes() {
+        return quiescenceNodes;
+    }
+
+    /** @return thinking time in nanoseconds **/
+    public long getTimeNanos() {
+        return timeNanos;
+    }
+
+    /** @return number of beta cutoffs **/
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    /** @return number of beta cutoffs caused by the first move searched **/
+    public long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+
+    /** @return number of transposition table lookups **/
+    public long getTTProbes() {
+        return ttProbes;
+    }
+
+    /** @return number of transposition table lookups that found the state **/
+    public long getTTHits() {
+        return ttHits;
+    }
+
+    /** @return score of the move, positive is good for white **/
+    public int getScore() {
+        return score;
+    }
+
+    /** @return nodes (including quiescence nodes) per second, 0 if no time was measured **/
+    public double getNodesPerSecond() {
+        return timeNanos == 0 ? 0 : (nodes + quiescenceNodes) * 1e9 / timeNanos;
+    }
+
+    /**
+     * returns the effective branching factor: the number of moves per node
+     * that a uniform tree of the reached depth would need to have as many
+     * nodes as the main search, i.e. nodes^(1/depth).
+     * @return effective branching factor, 0 if depth is 0
+     */
+    public double getEffectiveBranchingFactor() {
+        return depth == 0 ? 0 : Math.pow(nodes, 1.0 / depth);
+    }
+
+    /** @return fraction of the cutoffs caused by the first move, 0 if there were none **/
+    public double getFirstMoveCutoffRate() {
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+    /** @return fraction of the transposition table lookups that found the state, 0 if there were none **/
+    public double getTTHitRate() {
+        return ttProbes == 0 ? 0 : (double) ttHits / ttProbes;
+    }
+
+    /** @return the statistics as a line of comma separated values, see CSV_HEADER **/
+    public String toCSV() {
+        return String.format(Locale.ROOT, "%d,%d,%d,%d,%.0f,%.3f,%d,%d,%d,%d,%d",
+                depth, nodes, quiescenceNodes, timeNanos / 1000000, getNodesPerSecond(),
+                getEffectiveBranchingFactor(), cutoffs, firstMoveCutoffs, ttProbes, ttHits, score);
+    }
+
+    /** @return the statistics as a JSON object on one line **/
+    public String toJSON() {
+        return String.format(Locale.ROOT, "{\"depth\":%d,\"nodes\":%d,\"qnodes\":%d,\"timeMillis\":%d,"
+                + "\"nps\":%.0f,\"ebf\":%.3f,\"cutoffs\":%d,\"firstMoveCutoffs\":%d,"
+                + "\"ttProbes\":%d,\"ttHits\":%d,\"score\":%d}",
+                depth, nodes, quiescenceNodes, timeNanos / 1000000, getNodesPerSecond(),
+                getEffectiveBranchingFactor(), cutoffs, firstMoveCutoffs, ttProbes, ttHits, score);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "depth %d, %d nodes, %d quiescence nodes, %d ms, %.0f nodes/s, "
+                + "branching factor %.2f, %.0f%% first move cutoffs, %.0f%% TT hits",
+                depth, nodes, quiescenceNodes, timeNanos / 1000000, getNodesPerSecond(),
+                getEffectiveBranchingFactor(), 100 * getFirstMoveCutoffRate(), 100 * getTTHitRate());
+    }
+
+    /** makes SearchStatistics; all values are 0 until they are set. **/
+    public static final class Builder {
+        private int depth;
+        private long nodes;
+        private long quiescenceNodes;
+        private long timeNanos;
+        private long cutoffs;
+        private long firstMoveCutoffs;
+        private long ttProbes;
+        private long ttHits;
+        private int score;
+
+        public Builder depth(int depth) {
+            this.depth = depth;
+            return this;
+        }
+
+        public Builder nodes(long nodes, long quiescenceNodes) {
+            this.nodes = nodes;
+            this.quiescenceNodes = quiescenceNodes;
+            return this;
+        }
+
+        public Builder timeNanos(long timeNanos) {
+            this.timeNanos = timeNanos;
+            return this;
+        }
+
+        public Builder cutoffs(long cutoffs, long firstMoveCutoffs) {
+            this.cutoffs = cutoffs;
+            this.firstMoveCutoffs = firstMoveCutoffs;
+            return this;
+        }
+
+        public Builder ttProbes(long ttProbes, long ttHits) {
+            this.ttProbes = ttProbes;
+            this.ttHits = ttHits;
+            return this;
+        }
+
+        public Builder score(int score) {
+            this.score = score;
+            return this;
+        }
+
+        public SearchStatistics build() {
+            return new SearchStatistics(this);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package nl.tue.s2id90.game;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The thinking time for one move, as two deadlines on the System.nanoTime()
+ * clock. After the soft deadline a player should not start new work, such as
+ * the next iteration of an iterative deepening search; before the hard
+ * deadline it must have returned its move. The hard deadline lies a little
+ * before the end of the time limit, when stop() is called on players that are
+ * still searching.
+ * @author huub
+ */
+public final class TimeControl {
+    /** part of the time limit before the soft deadline. **/
+    private static final double SOFT_FRACTION = 0.5;
+    /** maximum time between the hard deadline and the end of the time limit. **/
+    private static final long MAX_MARGIN = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final long start;
+    private final long softDeadline;
+    private final long hardDeadline;
+
+    /**
+     * @param start System.nanoTime() at the start of the move
+     * @param softDeadline System.nanoTime() after which no new work should start
+     * @param hardDeadline System.nanoTime() before which the move must be returned
+     */
+    public TimeControl(long start, long softDeadline, long hardDeadline) {
+        if (softDeadline - start < 0 || hardDeadline - softDeadline < 0) {
+            throw new IllegalArgumentException("deadlines must be ordered");
+        }
+        this.start = start;
+        this.softDeadline = softDeadline;
+        this.hardDeadline = hardDeadline;
+    }
+
+    /**
+     * creates the time control of a move that starts now.
+     * @param timeLimitInMillis thinking time for the move
+     * @return time control
+     */
+    public static TimeControl forMove(long timeLimitInMillis) {
+        long limit = TimeUnit.MILLISECONDS.toNanos(timeLimitInMillis);
+        long margin = Math.min(MAX_MARGIN, limit / 10);
+        long now = System.nanoTime();
+        return new TimeControl(now, now + (long) (SOFT_FRACTION * limit), now + limit - margin);
+    }
+
+    /** @return System.nanoTime() at the start of the move **/
+    public long getStart() {
+        return start;
+    }
+
+    /** @return System.nanoTime() after which no new work should start **/
+    public long getSoftDeadline() {
+        return softDeadline;
+    }
+
+    /** @return System.nanoTime() before which the move must be returned **/
+    public long getHardDeadline() {
+        return hardDeadline;
+    }
+
+    /**
+     * @param now a System.nanoTime() value
+     * @return whether or not the soft deadline has passed at time now
+     */
+    public boolean softDeadlinePassed(long now) {
+        return now - softDeadline >= 0;
+    }
+
+    /**
+     * @param now a System.nanoTime() value
+     * @return whether or not the hard deadline has passed at time now
+     */
+    public boolean hardDeadlinePassed(long now) {
+        return now - hardDeadline >= 0;
+    }
+}
@@ -0,0 +1,390 @@
+package nl.tue.s2id90.bench;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import nl.tue.s2id90.draughts.BitboardState;
+import nl.tue.s2id90.draughts.DraughtsState;
+import nl.tue.s2id90.draughts.DraughtsStatePool;
+import nl.tue.s2id90.group11.AlphaBetaPlayer;
+
+/**
+ * Micro benchmarks of the engine: perft from the opening and from tactical
+ * positions, end of game detection, copies of states, fixed-depth search node
+ * rates and evaluation throughput.
+ *
+ * Every benchmark runs like a JMH throughput benchmark: a number of warmup
+ * iterations, whose results are thrown away, followed by the measured
+ * iterations. One iteration calls the workload until the iteration time has
+ * passed and reports operations per second; the score is the mean over the
+ * measured iterations with a 99.9% confidence interval.
+ * <pre>
+ * usage: Benchmark [-warmup n] [-iterations n] [-time ms] [-depth n]
+ *                  [-algorithm PVS|ALPHA_BETA] [-aspiration width] [-out file.json] [filter]
+ * usage: Benchmark -selectivity [-depth n]
+ * </pre>
+ * Only benchmarks whose name contains filter are run. The results are printed
+ * as a table and, with -out, written as JSON. Before the benchmarks run, the
+ * bitboard move generator is checked against the library and the search is
+ * checked to allocate no memory per node.
+ *
+ * With -selectivity no throughput is measured; instead every position is
+ * searched to a fixed depth with each selective search technique switched
+ * on and off, and the number of nodes each technique saved is printed.
+ * @author dennis
+ */
+public class Benchmark {
+    private int warmup = 3;
+    private int iterations = 5;
+    private long iterationTime = 1000; // ms
+    private int depth = 8;
+    private AlphaBetaPlayer.SearchAlgorithm algorithm = AlphaBetaPlayer.SearchAlgorithm.PVS;
+    private int aspirationWindow = 50;
+    private String filter = "";
+
+    // results of the workloads end up here, so the JIT can not remove them
+    private static volatile long sink;
+    // bytes that a deeper search may allocate more than a shallow one, for
+    // work per iteration instead of per node (there is none now: a search
+    // allocates the same 1.7 KB at every depth)
+    private static final long ALLOCATION_SLACK = 1024;
+
+    /**
+     * @param args the command line arguments
+     * @throws FileNotFoundException if the output file can not be created
+     */
+    public static void main(String[] args) throws FileNotFoundException {
+        Benchmark benchmark = new Benchmark();
+        String out = null;
+        boolean selectivity = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-warmup":     benchmark.warmup = Integer.parseInt(args[++i]); break;
+                case "-iterations": benchmark.iterations = Integer.parseInt(args[++i]); break;
+                case "-time":       benchmark.iterationTime = Long.parseLong(args[++i]); break;
+                case "-depth":      benchmark.depth = Integer.parseInt(args[++i]); break;
+                case "-algorithm":  benchmark.algorithm = AlphaBetaPlayer.SearchAlgorithm.valueOf(args[++i]); break;
+                case "-aspiration": benchmark.aspirationWindow = Integer.parseInt(args[++i]); break;
+                case "-out":        out = args[++i]; break;
+                case "-selectivity": selectivity = true; break;
+                default:            benchmark.filter = args[i];
+            }
+        }
+
+        if (selectivity) {
+            benchmark.selectivity();
+            return;
+        }
+        List<Result> results = benchmark.run();
+        if (out != null) {
+            try (PrintStream ps = new PrintStream(out)) {
+                printJSON(ps, results);
+            }
+        }
+    }
+
+    private List<Result> run() {
+        List<Result> results = new ArrayList<>();
+        Map<String, BitboardState> positions = Positions.all();
+        checkPerft(positions);
+        checkAllocation(positions);
+
+        // move generation
+        for (Map.Entry<String, BitboardState> e : positions.entrySet()) {
+            BitboardState s = e.getValue();
+            int d = e.getKey().equals("opening") ? 6 : 5;
+            run(results, "perft." + e.getKey() + ".depth" + d, "nodes/s", () -> Perft.perft(s, d));
+        }
+        DraughtsState library = positions.get("opening").toDraughtsState();
+        run(results, "perft.library.opening.depth4", "nodes/s", () -> Perft.perft(library, 4));
+
+        // end of game detection: all moves generated versus the first move found
+        BitboardState[] all = positions.values().toArray(new BitboardState[0]);
+        long[] moves = new long[BitboardState.MAX_MOVES];
+        run(results, "endstate.generateMoves", "states/s", () -> {
+            long ends = 0;
+            for (int i = 0; i < 1000; i++) {
+                for (BitboardState s : all) {
+                    ends += s.generateMoves(moves) == 0 ? 1 : 0;
+                }
+            }
+            sink += ends;
+            return 1000L * all.length;
+        });
+        run(results, "endstate.hasMoves", "states/s", () -> {
+            long ends = 0;
+            for (int i = 0; i < 1000; i++) {
+                for (BitboardState s : all) {
+                    ends += s.hasMoves() ? 0 : 1;
+                }
+            }
+            sink += ends;
+            return 1000L * all.length;
+        });
+
+        // copies of a DraughtsState, as a search task or a parallel engine makes them
+        DraughtsState[] draughtsStates = new DraughtsState[all.length];
+        for (int i = 0; i < all.length; i++) {
+            draughtsStates[i] = all[i].toDraughtsState();
+        }
+        run(results, "state.clone", "copies/s", () -> {
+            long h = 0;
+            for (int i = 0; i < 1000; i++) {
+                for (DraughtsState s : draughtsStates) {
+                    h += s.clone().hashKey();
+                }
+            }
+            sink += h;
+            return 1000L * draughtsStates.length;
+        });
+        DraughtsState copy = new DraughtsState();
+        run(results, "state.copyInto", "copies/s", () -> {
+            long h = 0;
+            for (int i = 0; i < 1000; i++) {
+                for (DraughtsState s : draughtsStates) {
+                    s.copyInto(copy);
+                    h += copy.hashKey();
+                }
+            }
+            sink += h;
+            return 1000L * draughtsStates.length;
+        });
+        DraughtsStatePool pool = new DraughtsStatePool();
+        run(results, "state.pool", "copies/s", () -> {
+            long h = 0;
+            for (int i = 0; i < 1000; i++) {
+                for (DraughtsState s : draughtsStates) {
+                    DraughtsState c = pool.acquire(s);
+                    h += c.hashKey();
+                    pool.release(c);
+                }
+            }
+            sink += h;
+            return 1000L * draughtsStates.length;
+        });
+
+        // search
+        AlphaBetaPlayer player = new AlphaBetaPlayer();
+        player.setSearchAlgorithm(algorithm);
+        player.setAspirationWindow(aspirationWindow);
+        for (Map.Entry<String, BitboardState> e : positions.entrySet()) {
+            BitboardState s = e.getValue();
+            run(results, "search." + e.getKey() + ".depth" + depth, "nodes/s", () -> {
+                sink += player.searchToDepth(s, depth);
+                return player.getNodeCount() + player.getQuiescenceNodeCount();
+            });
+        }
+
+        // evaluation over all positions, incremental and by a full scan
+        BitboardState[] states = positions.values().toArray(new BitboardState[0]);
+        for (BitboardState s : states) {
+            player.initEvaluation(s);
+        }
+        run(results, "evaluate", "evals/s", () -> {
+            long score = 0;
+            for (int i = 0; i < 1000; i++) {
+                for (BitboardState s : states) {
+                    score += player.evaluate(s);
+                }
+            }
+            sink += score;
+            return 1000L * states.length;
+        });
+        run(results, "evaluate.full", "evals/s", () -> {
+            long score = 0;
+            for (int i = 0; i < 1000; i++) {
+                for (BitboardState s : states) {
+                    score += player.evaluateFull(s);
+                }
+            }
+            sink += score;
+            return 1000L * states.length;
+        });
+        return results;
+    }
+
+    // nodes of fixed depth searches with the selective search techniques on and off
+    private void selectivity() {
+        System.out.println(String.format(Locale.ROOT, "%-12s %12s %12s %7s %12s %7s",
+                "position", "all on", "no LMR", "saved", "no multicut", "saved"));
+        for (Map.Entry<String, BitboardState> e : Positions.all().entrySet()) {
+            long all = selectiveNodes(e.getValue(), true, true);
+            long noLmr = selectiveNodes(e.getValue(), false, true);
+            long noMultiCut = selectiveNodes(e.getValue(), true, false);
+            System.out.println(String.format(Locale.ROOT, "%-12s %12d %12d %6.1f%% %12d %6.1f%%",
+                    e.getKey(), all, noLmr, 100.0 * (noLmr - all) / noLmr,
+                    noMultiCut, 100.0 * (noMultiCut - all) / noMultiCut));
+        }
+    }
+
+    private long selectiveNodes(BitboardState s, boolean lmr, boolean multiCut) {
+        AlphaBetaPlayer player = new AlphaBetaPlayer();
+        player.setSearchAlgorithm(algorithm);
+        player.setAspirationWindow(aspirationWindow);
+        player.setLateMoveReductions(lmr);
+        player.setMultiCut(multiCut);
+        sink += player.searchToDepth(s, depth);
+        return player.getNodeCount() + player.getQuiescenceNodeCount();
+    }
+
+    // both move generators must agree, otherwise the numbers are meaningless
+    private static void checkPerft(Map<String, BitboardState> positions) {
+        for (Map.Entry<String, BitboardState> e : positions.entrySet()) {
+            long bitboard = Perft.perft(e.getValue(), 3);
+            long library = Perft.perft(e.getValue().toDraughtsState(), 3);
+            if (bitboard != library) {
+                throw new IllegalStateException("perft(3) of " + e.getKey() + ": "
+                        + bitboard + " (bitboard) != " + library + " (library)");
+            }
+            long split = Perft.perftSplit(e.getValue(), 3);
+            if (split != bitboard) {
+                throw new IllegalStateException("perft(3) of " + e.getKey() + ": "
+                        + split + " (captures and quiet moves) != " + bitboard + " (all moves)");
+            }
+        }
+    }
+
+    // The search must not allocate per node: the bytes that a search allocates
+    // (its root moves, the clone of the state) may not grow with the number
+    // of nodes it visits. Every position is searched to a shallow and a deep
+    // depth, twice, so that the first round loads and compiles the code.
+    private static void checkAllocation(Map<String, BitboardState> positions) {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)
+                || !((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            System.out.println("allocation check skipped: the JVM does not count allocated bytes");
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+        int[] depths = {2, 6};
+        AlphaBetaPlayer player = new AlphaBetaPlayer();
+        player.setVerbose(false);
+        for (Map.Entry<String, BitboardState> e : positions.entrySet()) {
+            long[] bytes = new long[depths.length];
+            long[] nodes = new long[depths.length];
+            for (int round = 0; round < 2; round++) {
+                for (int i = 0; i < depths.length; i++) {
+                    long before = threads.getThreadAllocatedBytes(thread);
+                    sink += player.searchToDepth(e.getValue(), depths[i]);
+                    bytes[i] = threads.getThreadAllocatedBytes(thread) - before;
+                    nodes[i] = player.getNodeCount() + player.getQuiescenceNodeCount();
+                }
+            }
+            if (nodes[1] > nodes[0] && bytes[1] - bytes[0] > ALLOCATION_SLACK) {
+                throw new IllegalStateException(String.format(Locale.ROOT,
+                        "search of %s allocates per node: %d bytes for %d nodes (depth %d), "
+                        + "%d bytes for %d nodes (depth %d)", e.getKey(),
+                        bytes[0], nodes[0], depths[0], bytes[1], nodes[1], depths[1]));
+            }
+        }
+    }
+
+    // runs one benchmark; workload returns the number of operations it performed
+    private void run(List<Result> results, String name, String unit, LongSupplier workload) {
+        if (!name.contains(filter)) {
+            return;
+        }
+        for (int i = 0; i < warmup; i++) {
+            iteration(workload);
+        }
+        Result result = new Result(name, unit, iterations);
+        for (int i = 0; i < iterations; i++) {
+            result.scores[i] = iteration(workload);
+        }
+        System.out.println(String.format(Locale.ROOT, "%-36s %14.0f +- %12.0f %s",
+                name, result.mean(), result.error(), unit));
+        results.add(result);
+    }
+
+    // calls workload until iterationTime has passed; returns operations per second
+    private double iteration(LongSupplier workload) {
+        long ops = 0;
+        long start = System.nanoTime();
+        long end = start + iterationTime * 1000000L;
+        long now;
+        do {
+            ops += workload.getAsLong();
+            now = System.nanoTime();
+        } while (now < end);
+        return ops * 1e9 / (now - start);
+    }
+
+    // writes the results in the layout of the JSON output of JMH
+    private static void printJSON(PrintStream ps, List<Result> results) {
+        ps.println("[");
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            ps.println("    {");
+            ps.println("        \"benchmark\" : \"" + r.name + "\",");
+            ps.println("        \"mode\" : \"thrpt\",");
+            ps.println("        \"measurementIterations\" : " + r.scores.length + ",");
+            ps.println("        \"primaryMetric\" : {");
+            ps.println("            \"score\" : " + format(r.mean()) + ",");
+            ps.println("            \"scoreError\" : " + format(r.error()) + ",");
+            ps.println("            \"scoreUnit\" : \"" + r.unit + "\",");
+            StringBuilder raw = new StringBuilder();
+            for (double score : r.scores) {
+                raw.append(raw.length() == 0 ? "" : ", ").append(format(score));
+            }
+            ps.println("            \"rawData\" : [ [ " + raw + " ] ]");
+            ps.println("        }");
+            ps.println(i + 1 < results.size() ? "    }," : "    }");
+        }
+        ps.println("]");
+    }
+
+    private static String format(double d) {
+        if (Double.isNaN(d)) {
+            return "\"NaN\"";
+        }
+        return String.format(Locale.ROOT, "%.3f", d);
+    }
+
+    /** the scores of the measured iterations of one benchmark. **/
+    private static class Result {
+        // Student's t quantile for a two-sided 99.9% interval, by degrees of
+        // freedom 1..10; larger numbers of iterations use the last value
+        private static final double[] T = {636.6, 31.60, 12.92, 8.610, 6.869,
+                                           5.959, 5.408, 5.041, 4.781, 4.587};
+
+        final String name;
+        final String unit;
+        final double[] scores;
+
+        Result(String name, String unit, int iterations) {
+            this.name = name;
+            this.unit = unit;
+            this.scores = new double[iterations];
+        }
+
+        double mean() {
+            double sum = 0;
+            for (double score : scores) {
+                sum += score;
+            }
+            return sum / scores.length;
+        }
+
+        // half width of the 99.9% confidence interval of the mean
+        double error() {
+            int n = scores.length;
+            if (n < 2) {
+                return Double.NaN;
+            }
+            double mean = mean(), variance = 0;
+            for (double score : scores) {
+                variance += (score - mean) * (score - mean);
+            }
+            variance /= n - 1;
+            return T[Math.min(n - 1, T.length) - 1] * Math.sqrt(variance / n);
+        }
+    }
+}
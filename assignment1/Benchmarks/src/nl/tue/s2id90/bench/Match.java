@@ -0,0 +1,382 @@
+package nl.tue.s2id90.bench;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import nl.tue.s2id90.draughts.BitboardState;
+import nl.tue.s2id90.draughts.PositionFile;
+import nl.tue.s2id90.draughts.PositionWriter;
+import nl.tue.s2id90.game.TimeControl;
+import nl.tue.s2id90.group11.AlphaBetaPlayer;
+import nl.tue.s2id90.group11.EndgameTablebase;
+import nl.tue.s2id90.group11.EvaluationWeights;
+import nl.tue.s2id90.group11.OpeningBook;
+import nl.tue.s2id90.group11.TranspositionTable;
+import org10x10.dam.game.Move;
+
+/**
+ * Plays a match between two configurations of AlphaBetaPlayer, A and B, to
+ * decide whether a change is an improvement. Every start position is played
+ * twice, with colors reversed, and the games are played on all cores.
+ * <pre>
+ * usage: Match [-a config] [-b config] [-time ms] [-games n] [-threads n]
+ *              [-positions file] [-plies n] [-moves n]
+ *              [-elo0 elo] [-elo1 elo] [-alpha p] [-beta p] [-record file]
+ * </pre>
+ * A config is a comma separated list of settings, e.g.
+ * "lmr=true,aspiration=25"; see player(String) for the settings. The start
+ * positions are read from a file with one FEN per line, or are all positions
+ * after -plies moves from the initial position (2 by default).
+ *
+ * A game ends when the player to move has no moves (a loss), when a position
+ * occurs for the third time (a draw) or after -moves moves (a draw). After
+ * every game the Elo difference of A over B is printed with its 95% error
+ * bars, together with the log likelihood ratio of a sequential probability
+ * ratio test of H0: elo = elo0 against H1: elo = elo1. The match stops as
+ * soon as the test accepts one of them, or after -games games.
+ *
+ * With -record every position of every game is written to a file, one
+ * "FEN result" per line, where result is the score of white in that game
+ * (1, 0.5 or 0), or to a PositionFile if the file name ends in .dps. These
+ * are the positions that EvaluationTuner tunes on.
+ * @author dennis
+ */
+public class Match {
+    private String configA = "";
+    private String configB = "";
+    private long timePerMove = 100;     // ms
+    private int maxGames = 0;           // 0: every start position twice
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private String positionsFile = null;
+    private int openingPlies = 2;
+    private int maxPlies = 300;
+    private double elo0 = 0, elo1 = 10, alpha = 0.05, beta = 0.05;
+    private String recordFile = null;
+    private PrintWriter recorder = null;            // -record as text
+    private PositionWriter positionWriter = null;   // -record as PositionFile
+
+    // results for A: wins, draws, losses
+    private int wins, draws, losses;
+    private volatile boolean stopped = false;
+    private String verdict = "no verdict";
+
+    /**
+     * @param args the command line arguments
+     * @throws IOException if the positions file can not be read
+     * @throws InterruptedException if interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Match match = new Match();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-a":         match.configA = args[++i]; break;
+                case "-b":         match.configB = args[++i]; break;
+                case "-time":      match.timePerMove = Long.parseLong(args[++i]); break;
+                case "-games":     match.maxGames = Integer.parseInt(args[++i]); break;
+                case "-threads":   match.threads = Integer.parseInt(args[++i]); break;
+                case "-positions": match.positionsFile = args[++i]; break;
+                case "-plies":     match.openingPlies = Integer.parseInt(args[++i]); break;
+                case "-moves":     match.maxPlies = Integer.parseInt(args[++i]); break;
+                case "-elo0":      match.elo0 = Double.parseDouble(args[++i]); break;
+                case "-elo1":      match.elo1 = Double.parseDouble(args[++i]); break;
+                case "-alpha":     match.alpha = Double.parseDouble(args[++i]); break;
+                case "-beta":      match.beta = Double.parseDouble(args[++i]); break;
+                case "-record":    match.recordFile = args[++i]; break;
+                default:
+                    System.err.println("unknown option: " + args[i]);
+                    System.exit(1);
+            }
+        }
+        match.play();
+    }
+
+    private void play() throws IOException, InterruptedException {
+        List<BitboardState> positions = positionsFile != null ? readPositions() : openings(openingPlies);
+        int games = maxGames > 0 ? maxGames : 2 * positions.size();
+        System.out.println("A: \"" + configA + "\", B: \"" + configB + "\", " + positions.size()
+                + " start positions, " + games + " games of " + timePerMove + " ms per move");
+        if (recordFile != null && recordFile.endsWith(".dps")) {
+            positionWriter = new PositionWriter(Paths.get(recordFile));
+        } else if (recordFile != null) {
+            recorder = new PrintWriter(Files.newBufferedWriter(Paths.get(recordFile), StandardCharsets.UTF_8));
+        }
+        long start = System.nanoTime();
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(pool.submit(() -> {
+                // every thread keeps its own players, with their transposition tables
+                AlphaBetaPlayer a = player(configA), b = player(configB);
+                try {
+                    for (int g = next.getAndIncrement(); g < games && !stopped; g = next.getAndIncrement()) {
+                        // game 2i and 2i+1 start from the same position, with A white in game 2i
+                        BitboardState position = positions.get((g / 2) % positions.size());
+                        boolean aIsWhite = g % 2 == 0;
+                        List<BitboardState> game = recordFile != null ? new ArrayList<>() : null;
+                        int result = playGame(position, aIsWhite ? a : b, aIsWhite ? b : a, game);
+                        if (!stopped) {
+                            record(aIsWhite ? result : -result, game, result);
+                        }
+                    }
+                } finally {
+                    // ends the helper and ponder threads of the players
+                    a.gameFinished();
+                    b.gameFinished();
+                }
+                return null;
+            }));
+        }
+        pool.shutdown();
+        try {
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (ExecutionException ex) {
+            stopped = true;
+            throw new IllegalStateException(ex.getCause());
+        } finally {
+            if (recorder != null) {
+                recorder.close();
+            }
+            if (positionWriter != null) {
+                positionWriter.close();
+            }
+        }
+        double hours = (System.nanoTime() - start) / 3.6e12;
+        int n = wins + draws + losses;
+        System.out.println(String.format(Locale.ROOT, "%d games, %.0f games/hour: %s", n, n / hours, verdict));
+    }
+
+    // plays one game; returns 1 if white wins, -1 if black wins, 0 for a draw.
+    // Adds every position to game, unless game is null
+    private int playGame(BitboardState position, AlphaBetaPlayer white, AlphaBetaPlayer black,
+                         List<BitboardState> game) {
+        BitboardState s = position.clone();
+        long[] moves = new long[BitboardState.MAX_MOVES];
+        // occurrences of the positions since the last capture or move of a man
+        Map<Long, Integer> seen = new HashMap<>();
+        for (int ply = 0; ply < maxPlies && !stopped; ply++) {
+            int n = s.generateMoves(moves);
+            if (n == 0) {
+                return s.isWhiteToMove() ? -1 : 1;
+            }
+            if (seen.merge(s.hashKey(), 1, Integer::sum) == 3) {
+                return 0;
+            }
+            if (game != null) {
+                game.add(s.clone());
+            }
+            AlphaBetaPlayer player = s.isWhiteToMove() ? white : black;
+            player.setTimeControl(TimeControl.forMove(timePerMove));
+            Move m = player.getMove(s.toDraughtsState());
+            long move = 0;
+            for (int i = 0; i < n && move == 0; i++) {
+                if (s.toMove(moves[i]).equals(m)) {
+                    move = moves[i];
+                }
+            }
+            if (move == 0) {
+                throw new IllegalStateException("illegal move " + m + " in " + s.toFEN());
+            }
+            long men = s.getWhiteMen() | s.getBlackMen();
+            if (BitboardState.moveCaptures(move) != 0 || (men & (1L << BitboardState.moveFrom(move))) != 0) {
+                seen.clear();   // the positions before can not occur again
+            }
+            s.doMove(move);
+        }
+        return 0;
+    }
+
+    // result: for A; whiteResult: for white
+    private synchronized void record(int result, List<BitboardState> game, int whiteResult) {
+        if (stopped) {
+            return;
+        }
+        if (game != null) {
+            recordGame(game, whiteResult);
+        }
+        if (result > 0) {
+            wins++;
+        } else if (result == 0) {
+            draws++;
+        } else {
+            losses++;
+        }
+        Score score = new Score(wins, draws, losses);
+        double llr = score.llr(elo0, elo1);
+        double lower = Math.log(beta / (1 - alpha)), upper = Math.log((1 - beta) / alpha);
+        System.out.println(String.format(Locale.ROOT, "%5d games: +%d =%d -%d, elo %6.1f +- %5.1f, LLR %5.2f [%.2f, %.2f]",
+                wins + draws + losses, wins, draws, losses, score.elo(), score.eloError(), llr, lower, upper));
+        if (llr >= upper) {
+            verdict = String.format(Locale.ROOT, "H1 accepted, elo >= %.1f", elo1);
+            stopped = true;
+        } else if (llr <= lower) {
+            verdict = String.format(Locale.ROOT, "H0 accepted, elo <= %.1f", elo0);
+            stopped = true;
+        }
+    }
+
+    private void recordGame(List<BitboardState> game, int whiteResult) {
+        if (recorder != null) {
+            String score = whiteResult > 0 ? " 1" : whiteResult == 0 ? " 0.5" : " 0";
+            for (BitboardState s : game) {
+                recorder.println(s.toFEN() + score);
+            }
+        } else {
+            int label = whiteResult > 0 ? PositionFile.WHITE_WINS
+                    : whiteResult == 0 ? PositionFile.DRAW : PositionFile.BLACK_WINS;
+            try {
+                for (BitboardState s : game) {
+                    positionWriter.write(s, PositionFile.NO_SCORE, label);
+                }
+            } catch (IOException ex) {
+                stopped = true;
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    /**
+     * creates a player from a comma separated list of settings:
+     * threads=n, tt=log2 of the table size, algorithm=PVS|ALPHA_BETA,
+     * aspiration=width, lmr=bool, multicut=bool, killers=bool, history=bool,
+     * qlimit=n, tablebase=dir, book=file, weights=file.
+     */
+    static AlphaBetaPlayer player(String config) {
+        Map<String, String> settings = new LinkedHashMap<>();
+        for (String setting : config.split(",")) {
+            if (!setting.trim().isEmpty()) {
+                String[] kv = setting.split("=", 2);
+                settings.put(kv[0].trim(), kv.length > 1 ? kv[1].trim() : "true");
+            }
+        }
+        int threads = Integer.parseInt(settings.getOrDefault("threads", "1"));
+        int tt = Integer.parseInt(settings.getOrDefault("tt", "20"));
+        AlphaBetaPlayer p = new AlphaBetaPlayer(threads, tt, TranspositionTable.ReplacementPolicy.DEPTH_AND_AGE);
+        p.setVerbose(false);
+        try {
+            for (Map.Entry<String, String> e : settings.entrySet()) {
+                String v = e.getValue();
+                switch (e.getKey()) {
+                    case "threads": case "tt": break;
+                    case "algorithm":  p.setSearchAlgorithm(AlphaBetaPlayer.SearchAlgorithm.valueOf(v)); break;
+                    case "aspiration": p.setAspirationWindow(Integer.parseInt(v)); break;
+                    case "lmr":        p.setLateMoveReductions(Boolean.parseBoolean(v)); break;
+                    case "multicut":   p.setMultiCut(Boolean.parseBoolean(v)); break;
+                    case "killers":    p.setKillerMoves(Boolean.parseBoolean(v)); break;
+                    case "history":    p.setHistoryHeuristic(Boolean.parseBoolean(v)); break;
+                    case "qlimit":     p.setQuiescenceNodeLimit(Integer.parseInt(v)); break;
+                    case "tablebase":  p.setTablebase(EndgameTablebase.open(Paths.get(v))); break;
+                    case "book":       p.setOpeningBook(OpeningBook.open(Paths.get(v))); break;
+                    case "weights":    p.setWeights(EvaluationWeights.load(Paths.get(v))); break;
+                    default: throw new IllegalArgumentException("unknown setting: " + e.getKey());
+                }
+            }
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("bad config: " + config, ex);
+        }
+        return p;
+    }
+
+    private List<BitboardState> readPositions() throws IOException {
+        List<BitboardState> positions = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(positionsFile))) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                positions.add(BitboardState.fromFEN(line));
+            }
+        }
+        return positions;
+    }
+
+    // all different positions after plies moves from the initial position
+    static List<BitboardState> openings(int plies) {
+        Map<Long, BitboardState> positions = new LinkedHashMap<>();
+        positions.put(new BitboardState().hashKey(), new BitboardState());
+        for (int ply = 0; ply < plies; ply++) {
+            Map<Long, BitboardState> next = new LinkedHashMap<>();
+            long[] moves = new long[BitboardState.MAX_MOVES];
+            for (BitboardState s : positions.values()) {
+                int n = s.generateMoves(moves);
+                for (int i = 0; i < n; i++) {
+                    BitboardState child = s.clone();
+                    child.doMove(moves[i]);
+                    next.putIfAbsent(child.hashKey(), child);
+                }
+            }
+            positions = next;
+        }
+        return new ArrayList<>(positions.values());
+    }
+
+    /** wins, draws and losses, and the statistics of them. **/
+    static class Score {
+        final int wins, draws, losses;
+
+        Score(int wins, int draws, int losses) {
+            this.wins = wins;
+            this.draws = draws;
+            this.losses = losses;
+        }
+
+        int games() {
+            return wins + draws + losses;
+        }
+
+        // mean score per game
+        double mean() {
+            return (wins + 0.5 * draws) / games();
+        }
+
+        // variance of the score of one game
+        double variance() {
+            double m = mean();
+            return (wins * (1 - m) * (1 - m) + draws * (0.5 - m) * (0.5 - m) + losses * m * m) / games();
+        }
+
+        // Elo difference that gives the mean score
+        double elo() {
+            return elo(mean());
+        }
+
+        // half width of the 95% confidence interval of elo()
+        double eloError() {
+            double error = 1.96 * Math.sqrt(variance() / games());
+            return (elo(Math.min(mean() + error, 1)) - elo(Math.max(mean() - error, 0))) / 2;
+        }
+
+        // log likelihood ratio of H1: elo = elo1 over H0: elo = elo0, by the
+        // normal approximation of the distribution of the mean score
+        double llr(double elo0, double elo1) {
+            double variance = variance();
+            if (variance == 0) {
+                return 0;
+            }
+            double s0 = score(elo0), s1 = score(elo1);
+            return games() * (s1 - s0) * (2 * mean() - s0 - s1) / (2 * variance);
+        }
+
+        private static double elo(double score) {
+            return -400 * Math.log10(1 / score - 1);
+        }
+
+        private static double score(double elo) {
+            return 1 / (1 + Math.pow(10, -elo / 400));
+        }
+    }
+}
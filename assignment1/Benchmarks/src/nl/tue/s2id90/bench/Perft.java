@@ -0,0 +1,119 @@
+package nl.tue.s2id90.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import nl.tue.s2id90.draughts.BitboardState;
+import nl.tue.s2id90.draughts.DraughtsState;
+import org10x10.dam.game.Move;
+
+/**
+ * Perft: counts the leaf nodes of the game tree up to a fixed depth. Used to
+ * measure the speed of move generation and doMove/undoMove, and to check the
+ * move generators against each other.
+ * @author dennis
+ */
+final class Perft {
+    private Perft() {
+    }
+
+    /**
+     * perft on the packed moves of a BitboardState.
+     * @param s state, unchanged afterwards
+     * @param depth depth
+     * @return number of leaf nodes at depth
+     */
+    static long perft(BitboardState s, int depth) {
+        return perft(s, depth, new long[depth][BitboardState.MAX_MOVES]);
+    }
+
+    private static long perft(BitboardState s, int depth, long[][] moves) {
+        if (depth == 0) {
+            return 1;
+        }
+        long[] list = moves[depth - 1];
+        int n = s.generateMoves(list);
+        if (depth == 1) {
+            return n;
+        }
+        long nodes = 0;
+        for (int i = 0; i < n; i++) {
+            s.doMove(list[i]);
+            nodes += perft(s, depth - 1, moves);
+            s.undoMove(list[i]);
+        }
+        return nodes;
+    }
+
+    /**
+     * perft on the packed moves of a BitboardState, with the captures and the
+     * quiet moves generated separately, as the quiescence search does. Checks
+     * hasMoves() in every node.
+     * @param s state, unchanged afterwards
+     * @param depth depth
+     * @return number of leaf nodes at depth
+     * @throws IllegalStateException if hasMoves() is wrong
+     */
+    static long perftSplit(BitboardState s, int depth) {
+        return perftSplit(s, depth, new long[depth][BitboardState.MAX_MOVES]);
+    }
+
+    private static long perftSplit(BitboardState s, int depth, long[][] moves) {
+        if (depth == 0) {
+            return 1;
+        }
+        long[] list = moves[depth - 1];
+        int n = s.generateCaptures(list);
+        if (n == 0) {
+            n = s.generateQuietMoves(list);
+        }
+        if (s.hasMoves() != (n > 0)) {
+            throw new IllegalStateException("hasMoves() is " + s.hasMoves() + " in " + s.toFEN());
+        }
+        if (depth == 1) {
+            return n;
+        }
+        long nodes = 0;
+        for (int i = 0; i < n; i++) {
+            s.doMove(list[i]);
+            nodes += perftSplit(s, depth - 1, moves);
+            s.undoMove(list[i]);
+        }
+        return nodes;
+    }
+
+    /**
+     * perft on the Move objects of a DraughtsState, i.e. with the move
+     * generator of the game library.
+     * @param s state, unchanged afterwards
+     * @param depth depth
+     * @return number of leaf nodes at depth; captures that only differ in the
+     * order in which the pieces are taken are counted once
+     */
+    static long perft(DraughtsState s, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        List<Move> moves = distinct(s.getMoves());
+        if (depth == 1) {
+            return moves.size();
+        }
+        long nodes = 0;
+        for (Move m : moves) {
+            s.doMove(m);
+            nodes += perft(s, depth - 1);
+            s.undoMove(m);
+        }
+        return nodes;
+    }
+
+    // the library lists a capture once per order of taking the pieces
+    private static List<Move> distinct(List<Move> moves) {
+        List<Move> result = new ArrayList<>(moves.size());
+        for (Move m : moves) {
+            if (!result.contains(m)) {
+                result.add(m);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,39 @@
+package nl.tue.s2id90.bench;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import nl.tue.s2id90.draughts.BitboardState;
+
+/**
+ * The positions used by the benchmarks, in FEN notation (see
+ * BitboardState#fromFEN). Besides the initial position there are a few
+ * positions from random games in which the player to move has to make a
+ * capture of three or more pieces, so the capture generator is exercised too.
+ * @author dennis
+ */
+final class Positions {
+    private Positions() {
+    }
+
+    static final String OPENING = "W:W31-50:B1-20";
+
+    /** name to FEN of the tactical positions. **/
+    static final Map<String, String> TACTICAL = new LinkedHashMap<>();
+
+    static {
+        TACTICAL.put("capture3", "W:W24,29,31,33,34,35,38,39,40,41,42,43,44,46,47,48,49:B1,2,3,5,6,9,10,11,12,14,15,20,22,23");
+        TACTICAL.put("capture4", "W:W16,28,30,31,32,35,38,41,42,43,44,46,47,48,49,50:B1,2,3,4,5,6,7,9,10,11,12,13,14,21,24");
+        TACTICAL.put("capture5", "B:W31,32,33,34,36,40,42,43,46,50:B1,7,11,12,13,17,22,23,24,26");
+        TACTICAL.put("king", "B:W20,23,33,40,43,44:B1,5,7,9,10,15,K41");
+    }
+
+    /** @return name to state of all positions, the opening first **/
+    static Map<String, BitboardState> all() {
+        Map<String, BitboardState> positions = new LinkedHashMap<>();
+        positions.put("opening", BitboardState.fromFEN(OPENING));
+        for (Map.Entry<String, String> e : TACTICAL.entrySet()) {
+            positions.put(e.getKey(), BitboardState.fromFEN(e.getValue()));
+        }
+        return positions;
+    }
+}
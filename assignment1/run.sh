@@ -3,6 +3,12 @@
 # Usage:
 # ./run.sh clean  # to clean the build if wanted.
 # ./run.sh        # to build and run the application.
+# ./run.sh bench [options]  # to build and run the benchmarks, see Benchmark.java.
+# ./run.sh tablebase [options] dir  # to generate endgame tablebases, see TablebaseGenerator.java.
+# ./run.sh book [options] file  # to build an opening book, see OpeningBookBuilder.java.
+# ./run.sh match [options]  # to play a self-play match between two configurations, see Match.java.
+# ./run.sh tune [options] positions...  # to tune the evaluation weights, see EvaluationTuner.java.
+# ./run.sh engine [options] class|pluginFolder...  # to run a player as an external engine, see DraughtsEngine.java.
 
 export JAVA_HOME=/usr/lib/jvm/java-8-openjdk/
 if [ ! -d "$JAVA_HOME" ] ; then
@@ -15,6 +21,61 @@ cd "$(dirname "$(realpath "$0")" )"
 if [ "$1" == "clean" ] ; then
     (cd AICompetition && ant clean)
     (cd 2ID90-Group-11 && ant clean)
+    (cd Benchmarks && ant clean)
+    exit
+fi
+
+if [ "$1" == "bench" ] ; then
+    shift
+    (cd AICompetition && ant jar) && \
+    (cd 2ID90-Group-11 && ant jar) && \
+    (cd Benchmarks && ant jar) && \
+    java -jar Benchmarks/dist/Benchmarks.jar "$@"
+    exit
+fi
+
+if [ "$1" == "tablebase" ] ; then
+    shift
+    (cd AICompetition && ant jar) && \
+    (cd 2ID90-Group-11 && ant jar) && \
+    java -cp 2ID90-Group-11/dist/2ID90-Group-11.jar:AICompetition/dist/AICompetition.jar:lib/core2id90.jar \
+        nl.tue.s2id90.group11.TablebaseGenerator "$@"
+    exit
+fi
+
+if [ "$1" == "book" ] ; then
+    shift
+    (cd AICompetition && ant jar) && \
+    (cd 2ID90-Group-11 && ant jar) && \
+    java -cp 2ID90-Group-11/dist/2ID90-Group-11.jar:AICompetition/dist/AICompetition.jar:lib/core2id90.jar \
+        nl.tue.s2id90.group11.OpeningBookBuilder "$@"
+    exit
+fi
+
+if [ "$1" == "match" ] ; then
+    shift
+    (cd AICompetition && ant jar) && \
+    (cd 2ID90-Group-11 && ant jar) && \
+    (cd Benchmarks && ant jar) && \
+    java -cp Benchmarks/dist/Benchmarks.jar nl.tue.s2id90.bench.Match "$@"
+    exit
+fi
+
+if [ "$1" == "tune" ] ; then
+    shift
+    (cd AICompetition && ant jar) && \
+    (cd 2ID90-Group-11 && ant jar) && \
+    java -cp 2ID90-Group-11/dist/2ID90-Group-11.jar:AICompetition/dist/AICompetition.jar:lib/core2id90.jar \
+        nl.tue.s2id90.group11.EvaluationTuner "$@"
+    exit
+fi
+
+if [ "$1" == "engine" ] ; then
+    shift
+    (cd AICompetition && ant jar) >&2 && \
+    (cd 2ID90-Group-11 && ant jar) >&2 && \
+    java -cp 2ID90-Group-11/dist/2ID90-Group-11.jar:AICompetition/dist/AICompetition.jar:lib/core2id90.jar \
+        nl.tue.s2id90.draughts.DraughtsEngine "$@"
     exit
 fi
 